@@ -0,0 +1,42 @@
+// The formatting engine. It has no IntelliJ Platform dependency, so that it can also be used from the command line.
+plugins {
+    id("java-library")
+    id("application")
+    alias(libs.plugins.jmh) // JMH benchmarks in src/jmh, run with ./gradlew :engine:jmh
+}
+
+repositories {
+    mavenCentral()
+}
+
+dependencies {
+    compileOnly(libs.annotations)
+}
+
+java {
+    toolchain {
+        languageVersion = JavaLanguageVersion.of(17)
+    }
+}
+
+application {
+    mainClass = "com.github.cbfiddle.autoformattext2.engine.cli.AutoFormatTextCli"
+    applicationName = "autoformattext"
+    // Keep startup fast: the command line formatter is short lived and does not benefit from the optimizing compiler
+    applicationDefaultJvmArgs = listOf("-XX:TieredStopAtLevel=1", "-Xshare:auto")
+}
+
+// Configure JMH Gradle Plugin - read more: https://github.com/melix/jmh-gradle-plugin
+// Select benchmarks with -PjmhIncludes=<regex>, e.g. ./gradlew :engine:jmh -PjmhIncludes=WrapBenchmark
+jmh {
+    jmhVersion = libs.versions.jmh
+    includes = providers.gradleProperty("jmhIncludes").map { listOf(it) }.orElse(listOf(".*"))
+    profilers = listOf("gc")
+    fork = 1
+    warmupIterations = 3
+    warmup = "1s"
+    iterations = 5
+    timeOnIteration = "1s"
+    resultFormat = "JSON"
+    resultsFile = layout.buildDirectory.file("reports/jmh/results.json")
+}
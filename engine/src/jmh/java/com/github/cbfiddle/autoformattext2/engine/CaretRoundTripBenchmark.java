@@ -0,0 +1,58 @@
+package com.github.cbfiddle.autoformattext2.engine;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+  Measures the complete caret round trip of the editor action: wrap the paragraph while recording an offset map,
+  compute the changed ranges, and map every caret to its new position.
+*/
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CaretRoundTripBenchmark
+{
+    @Param({ "100", "10000" })
+    public int words;
+
+    @Param({ "1", "16" })
+    public int carets;
+
+    private String text;
+    private int[] caretOffsets;
+    private ParagraphWrapper wrapper;
+    private final StringBuilder sb = new StringBuilder();
+    private final OffsetMap offsetMap = new OffsetMap();
+
+    @Setup
+    public void setUp()
+    {
+        Corpus corpus = new Corpus();
+        text = corpus.paragraph("    // ", "    // ", words);
+        caretOffsets = corpus.offsets(carets, text.length());
+        wrapper = new ParagraphWrapper(new MarginRecognizer(true, 4), 80);
+    }
+
+    @Benchmark
+    public int roundTrip()
+    {
+        sb.setLength(0);
+        wrapper.wrap(text, 0, text.length(), sb, offsetMap);
+        TextEdits edits = new TextEdits();
+        edits.addDifferences(text, 0, text.length(), sb, 0, sb.length(), offsetMap);
+        int result = edits.size();
+        for (int offset : caretOffsets) {
+            result += offsetMap.map(offset);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,139 @@
+package com.github.cbfiddle.autoformattext2.engine;
+
+import java.util.Random;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+  Generates the benchmark inputs. Every corpus is derived from a fixed seed, so that the same text is measured on
+  every run and results can be compared between commits.
+*/
+
+final class Corpus
+{
+    private static final long SEED = 0x5eed_a7f2L;
+
+    private static final String[] WORDS = {
+      "the", "of", "and", "a", "to", "in", "is", "that", "for", "it", "as", "with", "be", "on", "not", "this", "by",
+      "are", "or", "from", "paragraph", "margin", "reformat", "document", "editor", "caret", "selection", "comment",
+      "width", "offset", "character", "sequence", "implementation", "unnecessarily", "configuration", "x", "I", "(see",
+      "below)", "e.g.", "{@link", "Margin}", "reformatted,", "lines.", "incomprehensibilities"
+    };
+
+    private final Random random = new Random(SEED);
+
+    /**
+      Return a paragraph of the specified number of words with the specified margin on every line. The paragraph is
+      broken into lines of roughly 70 characters, so that the wrapper has to move words between lines.
+    */
+
+    @NotNull String paragraph(@NotNull String firstMargin, @NotNull String margin, int wordCount)
+    {
+        StringBuilder sb = new StringBuilder(wordCount * 8);
+        sb.append(firstMargin);
+        int lineStart = 0;
+        for (int i = 0; i < wordCount; i++) {
+            if (i > 0) {
+                if (sb.length() - lineStart > 70 - random.nextInt(20)) {
+                    sb.append('\n');
+                    lineStart = sb.length();
+                    sb.append(margin);
+                } else {
+                    sb.append(random.nextInt(8) == 0 ? "  " : " ");
+                }
+            }
+            sb.append(word());
+        }
+        return sb.toString();
+    }
+
+    /**
+      Return a document of at least the specified size, made of paragraphs of plain text, Javadoc comments, line
+      comments and bulleted lists separated by empty lines.
+    */
+
+    @NotNull String document(int size)
+    {
+        StringBuilder sb = new StringBuilder(size + 4096);
+        while (sb.length() < size) {
+            int words = 5 + random.nextInt(120);
+            switch (random.nextInt(4)) {
+                case 0:
+                    sb.append(paragraph("", "", words));
+                    break;
+                case 1:
+                    sb.append("    /**\n");
+                    sb.append(paragraph("     * ", "     * ", words));
+                    sb.append("\n     */");
+                    break;
+                case 2:
+                    sb.append(paragraph("    // ", "    // ", words));
+                    break;
+                default:
+                    int items = 1 + random.nextInt(5);
+                    for (int item = 1; item <= items; item++) {
+                        if (item > 1) {
+                            sb.append('\n');
+                        }
+                        sb.append(paragraph(item + ") ", "   ", 1 + words / 4));
+                    }
+            }
+            sb.append("\n\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+      Return lines whose margins are of the specified kind.
+    */
+
+    @NotNull String[] marginLines(@NotNull String kind, int count)
+    {
+        String[] lines = new String[count];
+        for (int i = 0; i < count; i++) {
+            String indent = " ".repeat(random.nextInt(3) * 4) + (random.nextInt(4) == 0 ? "\t" : "");
+            String margin;
+            switch (kind) {
+                case "plain":
+                    margin = indent;
+                    break;
+                case "javadoc":
+                    margin = indent + " * ";
+                    break;
+                case "slashes":
+                    margin = indent + "// ";
+                    break;
+                case "bullet":
+                    margin = indent + "-*#@".charAt(random.nextInt(4)) + " ";
+                    break;
+                case "enumeration":
+                    margin = indent + (random.nextBoolean() ? "(" + (char) ('a' + random.nextInt(26)) + ") " : (1 + random.nextInt(99)) + ") ");
+                    break;
+                default:
+                    throw new IllegalArgumentException(kind);
+            }
+            lines[i] = paragraph(margin, "", 6 + random.nextInt(6));
+        }
+        return lines;
+    }
+
+    /**
+      Return offsets chosen uniformly from the range {@code 0} (inclusive) to {@code bound} (exclusive).
+    */
+
+    @NotNull int[] offsets(int count, int bound)
+    {
+        int[] offsets = new int[count];
+        for (int i = 0; i < count; i++) {
+            offsets[i] = random.nextInt(bound);
+        }
+        return offsets;
+    }
+
+    private @NotNull String word()
+    {
+        // Favour the short, common words, as real text does
+        int index = Math.min(random.nextInt(WORDS.length), random.nextInt(WORDS.length));
+        return WORDS[index];
+    }
+}
@@ -0,0 +1,49 @@
+package com.github.cbfiddle.autoformattext2.engine;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+  Measures margin recognition on lines with each kind of margin. The score is the number of lines per second.
+*/
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MarginBenchmark
+{
+    private static final int LINES = 1024;
+
+    @Param({ "plain", "javadoc", "slashes", "bullet", "enumeration" })
+    public String kind;
+
+    private String[] lines;
+    private MarginRecognizer recognizer;
+    private final Margin margin = new Margin();
+
+    @Setup
+    public void setUp()
+    {
+        lines = new Corpus().marginLines(kind, LINES);
+        recognizer = new MarginRecognizer(true, 4);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void recognize(Blackhole blackhole)
+    {
+        for (String line : lines) {
+            blackhole.consume(recognizer.recognize(line, 0, line.length(), margin));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.github.cbfiddle.autoformattext2.engine;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+  Measures finding the paragraph at the caret when there is no selection, in documents of increasing size. Each
+  invocation finds the paragraphs at a fixed set of caret positions spread over the document; the line index is
+  built once, as the editor maintains one for every document.
+*/
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ParagraphFinderBenchmark
+{
+    private static final int CARETS = 64;
+
+    @Param({ "1024", "102400", "10485760" })
+    public int size;
+
+    private String text;
+    private LineIndex lines;
+    private int[] caretLines;
+    private ParagraphFinder finder;
+    private ParagraphIndex index;
+
+    @Setup
+    public void setUp()
+    {
+        Corpus corpus = new Corpus();
+        text = corpus.document(size);
+        lines = LineIndex.of(text);
+        finder = new ParagraphFinder(text, lines, new MarginRecognizer(true, 4));
+        index = new ParagraphIndex(new MarginRecognizer(true, 4), text, lines);
+        int[] offsets = corpus.offsets(CARETS, text.length());
+        caretLines = new int[CARETS];
+        for (int i = 0; i < CARETS; i++) {
+            caretLines[i] = lines.getLineNumber(offsets[i]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CARETS)
+    public void findParagraph(Blackhole blackhole)
+    {
+        for (int line : caretLines) {
+            if (!finder.isEmptyLine(line)) {
+                blackhole.consume(finder.findStartLine(line));
+                blackhole.consume(finder.findEndLine(line));
+            }
+        }
+    }
+
+    /**
+      Find the same paragraphs with a paragraph index, as the editor action does.
+    */
+
+    @Benchmark
+    @OperationsPerInvocation(CARETS)
+    public void findParagraphIndexed(Blackhole blackhole)
+    {
+        for (int line : caretLines) {
+            blackhole.consume(index.findStartLine(line));
+            blackhole.consume(index.findEndLine(line));
+        }
+    }
+
+    /**
+      Build the paragraph index of the whole document, which happens the first time a paragraph is found.
+    */
+
+    @Benchmark
+    public ParagraphIndex indexParagraphs()
+    {
+        return new ParagraphIndex(new MarginRecognizer(true, 4), text, lines);
+    }
+
+    /**
+      Build the line index of the whole document, which the command line formatter does for every file.
+    */
+
+    @Benchmark
+    public LineIndex indexLines()
+    {
+        return LineIndex.of(text);
+    }
+}
@@ -0,0 +1,75 @@
+package com.github.cbfiddle.autoformattext2.engine;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+  Measures wrapping a single paragraph, from a short comment to a paragraph far longer than any real one.
+*/
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class WrapBenchmark
+{
+    @Param({ "10", "100", "1000", "10000", "100000" })
+    public int words;
+
+    @Param({ "plain", "javadoc" })
+    public String margin;
+
+    private String text;
+    private ParagraphWrapper wrapper;
+    private ParagraphWrapper balancedWrapper;
+    private final StringBuilder sb = new StringBuilder();
+    private final OffsetMap offsetMap = new OffsetMap();
+
+    @Setup
+    public void setUp()
+    {
+        boolean javadoc = margin.equals("javadoc");
+        String lineMargin = javadoc ? "     * " : "";
+        text = new Corpus().paragraph(lineMargin, lineMargin, words);
+        wrapper = new ParagraphWrapper(new MarginRecognizer(javadoc, 4), 80);
+        balancedWrapper = new ParagraphWrapper(new MarginRecognizer(javadoc, 4), 80);
+        balancedWrapper.setBalancedWordLimit(Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public String wrap()
+    {
+        return wrapper.wrap(text, 0, text.length());
+    }
+
+    /**
+      Wrap into a reused buffer while recording an offset map, as the editor action does.
+    */
+
+    @Benchmark
+    public int wrapWithOffsetMap()
+    {
+        sb.setLength(0);
+        wrapper.wrap(text, 0, text.length(), sb, offsetMap);
+        return sb.length() + offsetMap.getSegmentCount();
+    }
+
+    /**
+      Wrap with balanced line breaks, with no word limit.
+    */
+
+    @Benchmark
+    public int wrapBalanced()
+    {
+        sb.setLength(0);
+        balancedWrapper.wrap(text, 0, text.length(), sb, offsetMap);
+        return sb.length();
+    }
+}
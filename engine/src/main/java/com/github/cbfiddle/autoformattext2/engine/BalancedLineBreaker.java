@@ -0,0 +1,211 @@
+package com.github.cbfiddle.autoformattext2.engine;
+
+import java.util.Arrays;
+
+/**
+  Chooses line breaks for a paragraph that minimize the sum over all lines but the last of the square of the unused
+  space at the end of the line (the "minimum raggedness" criterion of Knuth and Plass, without hyphenation or
+  stretchable space). As in greedy wrapping, a word that does not fit on a line by itself is placed on a line of its
+  own.
+  <p>
+  The line cost is a convex function of the line length, so the costs satisfy the quadrangle inequality and the best
+  previous break for a break position never moves backwards as the position advances. The dynamic program keeps the
+  candidate previous breaks in a deque, each owning the range of positions for which it is the best so far; a new
+  candidate takes over a suffix of that range, found by binary search. The running time is O(n log n) in the number
+  of words, rather than the O(n^2) of the textbook algorithm. The first line may have a different width than the other
+  lines, which would break the quadrangle inequality, so breaks that end the first line are considered separately.
+  <p>
+  A breaker keeps scratch arrays, so an instance must not be used by several threads at once.
+*/
+
+final class BalancedLineBreaker
+{
+    private static final long INFEASIBLE = Long.MAX_VALUE;
+
+    private int wordCount;
+    private int[] wordWidths = new int[64];
+
+    // Scratch state for breakLines, indexed by break position (the index of the first word of a line)
+    private long[] offsets = new long[65];
+    private long[] costs = new long[65];
+    private int[] previous = new int[65];
+    private int[] candidates = new int[65];
+    private int[] candidateStarts = new int[65];
+    private boolean[] breaks = new boolean[65];
+
+    private int firstLineWidth;
+    private int otherLineWidth;
+    private int spaceWidth;
+
+    void clear()
+    {
+        wordCount = 0;
+    }
+
+    void addWord(int width)
+    {
+        if (wordCount == wordWidths.length) {
+            wordWidths = Arrays.copyOf(wordWidths, 2 * wordCount);
+        }
+        wordWidths[wordCount++] = width;
+    }
+
+    int getWordCount()
+    {
+        return wordCount;
+    }
+
+    /**
+      Return true if a line break is placed before the specified word by the last call of {@link #breakLines}.
+    */
+
+    boolean isBreakBefore(int word)
+    {
+        return breaks[word];
+    }
+
+    /**
+      Choose the line breaks for the words that have been added.
+      @param firstLineWidth The space available for words on the first line.
+      @param otherLineWidth The space available for words on the other lines.
+      @param spaceWidth The width of the space between words.
+    */
+
+    void breakLines(int firstLineWidth, int otherLineWidth, int spaceWidth)
+    {
+        this.firstLineWidth = firstLineWidth;
+        this.otherLineWidth = otherLineWidth;
+        this.spaceWidth = spaceWidth;
+
+        int n = wordCount;
+        if (offsets.length < n + 1) {
+            int capacity = Math.max(n + 1, 2 * offsets.length);
+            offsets = new long[capacity];
+            costs = new long[capacity];
+            previous = new int[capacity];
+            candidates = new int[capacity];
+            candidateStarts = new int[capacity];
+            breaks = new boolean[capacity];
+        }
+        Arrays.fill(breaks, 0, n + 1, false);
+        if (n == 0) {
+            return;
+        }
+
+        // offsets[i] is the length of the words before word i, each followed by a space
+        offsets[0] = 0;
+        for (int i = 0; i < n; i++) {
+            offsets[i + 1] = offsets[i] + wordWidths[i] + spaceWidth;
+        }
+
+        // costs[j] is the least cost of the lines before a break at word j. The deque holds candidate previous breaks
+        // (other than 0), with the position from which each one is the best candidate.
+        costs[0] = 0;
+        int head = 0;
+        int tail = 0;
+        for (int j = 1; j < n; j++) {
+            int k = j - 1;
+            if (k > 0) {
+                // Add the break at k as a candidate for positions from j on
+                while (tail > head) {
+                    int start = Math.max(candidateStarts[tail - 1], j);
+                    if (cost(k, start) <= cost(candidates[tail - 1], start)) {
+                        tail--;
+                    } else {
+                        break;
+                    }
+                }
+                if (tail == head) {
+                    candidates[tail] = k;
+                    candidateStarts[tail] = j;
+                    tail++;
+                } else {
+                    int start = findTakeover(k, candidates[tail - 1], Math.max(candidateStarts[tail - 1], j) + 1, n - 1);
+                    if (start < n) {
+                        candidates[tail] = k;
+                        candidateStarts[tail] = start;
+                        tail++;
+                    }
+                }
+            }
+            while (tail - head > 1 && candidateStarts[head + 1] <= j) {
+                head++;
+            }
+
+            long best = cost(0, j);
+            int bestPrevious = 0;
+            if (tail > head) {
+                long c = cost(candidates[head], j);
+                if (c < best) {
+                    best = c;
+                    bestPrevious = candidates[head];
+                }
+            }
+            costs[j] = best;
+            previous[j] = bestPrevious;
+        }
+
+        // The last line is free, as long as it fits
+        int last = n - 1;
+        long best = costs[last];
+        for (int i = n - 2; i > 0 && lineLength(i, n) <= otherLineWidth; i--) {
+            if (costs[i] <= best) {
+                best = costs[i];
+                last = i;
+            }
+        }
+        if (lineLength(0, n) <= firstLineWidth) {
+            last = 0;
+        }
+        for (int i = last; i > 0; i = previous[i]) {
+            breaks[i] = true;
+        }
+    }
+
+    /**
+      Return the first position in the range {@code low} to {@code high} (inclusive) at which the break at {@code k}
+      is at least as good a previous break as the older break at {@code older}, or {@code high + 1} if there is none.
+    */
+
+    private int findTakeover(int k, int older, int low, int high)
+    {
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (cost(k, middle) <= cost(older, middle)) {
+                high = middle - 1;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+      Return the cost of the lines up to a break at {@code j}, where the last of those lines starts at {@code i}.
+    */
+
+    private long cost(int i, int j)
+    {
+        long length = lineLength(i, j);
+        int available = availableWidth(i);
+        if (length <= available) {
+            long slack = available - length;
+            return costs[i] + slack * slack;
+        }
+        if (j == i + 1) {
+            // A word that is too long for any line is placed by itself
+            return costs[i];
+        }
+        return INFEASIBLE;
+    }
+
+    private long lineLength(int i, int j)
+    {
+        return offsets[j] - offsets[i] - spaceWidth;
+    }
+
+    private int availableWidth(int i)
+    {
+        return i == 0 ? firstLineWidth : otherLineWidth;
+    }
+}
@@ -0,0 +1,14 @@
+package com.github.cbfiddle.autoformattext2.engine;
+
+/**
+  Called periodically by operations whose running time depends on the size of the text, so that the caller can
+  abandon them, typically by throwing an unchecked exception. In the IDE this is {@code ProgressManager.checkCanceled}.
+*/
+
+@FunctionalInterface
+public interface CancellationCheck
+{
+    CancellationCheck NONE = () -> {};
+
+    void checkCanceled();
+}
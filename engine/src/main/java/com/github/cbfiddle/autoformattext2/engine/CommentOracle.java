@@ -0,0 +1,16 @@
+package com.github.cbfiddle.autoformattext2.engine;
+
+/**
+  Tells which parts of a text are comments, typically from the tokens of a language's lexer. Queries are usually made
+  in increasing order of offset, which implementations may exploit.
+*/
+
+@FunctionalInterface
+public interface CommentOracle
+{
+    /**
+      Return true if the character at the specified offset is part of a comment.
+    */
+
+    boolean isComment(int offset);
+}
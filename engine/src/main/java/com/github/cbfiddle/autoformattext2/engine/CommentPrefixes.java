@@ -0,0 +1,111 @@
+package com.github.cbfiddle.autoformattext2.engine;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+  The registry of the comment prefixes that belong to the left margin, by language. Languages are identified by the
+  IDs of IntelliJ languages ({@code Language.getID()}), which the command line formatter also uses.
+  <p>
+  Each prefix may appear once in a margin, as the first {@code *} and the first {@code //} do in Java. When prefixes
+  overlap, the longest one that matches is used, so Rust {@code ///} and Lisp {@code ;;;} are single prefixes.
+  <p>
+  All of the registered prefixes are compiled into a single {@link PrefixTrie}, so that margin recognition is a single
+  pass over the line however many languages are registered. The trie is rebuilt when a language is registered.
+*/
+
+public final class CommentPrefixes
+{
+    private static final Map<String,String[]> prefixesByLanguage = new LinkedHashMap<>();
+    private static volatile Map<String,CommentSyntax> compiled;
+
+    static {
+        String[] cLike = { "//", "*" };
+        for (String language : new String[] { "JAVA", "kotlin", "Groovy", "Scala", "JavaScript", "TypeScript", "ECMAScript 6",
+                                              "ObjectiveC", "C#", "go", "Dart", "Swift", "PHP", "CSS", "SCSS", "LESS" }) {
+            register(language, cLike);
+        }
+        register("Rust", "///", "//!", "//", "*");
+        String[] hash = { "#" };
+        for (String language : new String[] { "Python", "Shell Script", "yaml", "TOML", "ruby", "Perl5", "Makefile", "R",
+                                              "Dockerfile", "CMake", "Properties", "HCL" }) {
+            register(language, hash);
+        }
+        String[] dashDash = { "--" };
+        for (String language : new String[] { "SQL", "Lua", "Haskell", "Elm", "Ada" }) {
+            register(language, dashDash);
+        }
+        String[] semicolons = { ";;;;", ";;;", ";;", ";" };
+        for (String language : new String[] { "Lisp", "Clojure", "Scheme", "Emacs Lisp" }) {
+            register(language, semicolons);
+        }
+        String[] percent = { "%%", "%" };
+        for (String language : new String[] { "Erlang", "TeX", "LaTeX", "MATLAB", "Prolog" }) {
+            register(language, percent);
+        }
+        register("VB", "'");
+    }
+
+    private CommentPrefixes()
+    {
+    }
+
+    /**
+      Register the comment prefixes of a language, replacing any that were registered before.
+    */
+
+    public static synchronized void register(@NotNull String languageId, @NotNull String... prefixes)
+    {
+        prefixesByLanguage.put(languageId, prefixes.clone());
+        compiled = null;
+    }
+
+    /**
+      Return the comment syntax of a language, or {@link CommentSyntax#NONE} if the language is not registered.
+    */
+
+    public static @NotNull CommentSyntax forLanguage(@NotNull String languageId)
+    {
+        Map<String,CommentSyntax> syntaxes = compiled;
+        if (syntaxes == null) {
+            syntaxes = compile();
+        }
+        return syntaxes.getOrDefault(languageId, CommentSyntax.NONE);
+    }
+
+    private static synchronized @NotNull Map<String,CommentSyntax> compile()
+    {
+        if (compiled != null) {
+            return compiled;
+        }
+
+        // Number the distinct prefixes
+        List<String> prefixes = new ArrayList<>();
+        Map<String,Integer> ids = new HashMap<>();
+        for (String[] languagePrefixes : prefixesByLanguage.values()) {
+            for (String prefix : languagePrefixes) {
+                if (!ids.containsKey(prefix)) {
+                    ids.put(prefix, prefixes.size());
+                    prefixes.add(prefix);
+                }
+            }
+        }
+
+        PrefixTrie trie = new PrefixTrie(prefixes.toArray(new String[0]));
+        Map<String,CommentSyntax> syntaxes = new HashMap<>();
+        for (Map.Entry<String,String[]> entry : prefixesByLanguage.entrySet()) {
+            long mask = 0;
+            for (String prefix : entry.getValue()) {
+                mask |= 1L << ids.get(prefix);
+            }
+            syntaxes.put(entry.getKey(), new CommentSyntax(trie, mask));
+        }
+        compiled = syntaxes;
+        return syntaxes;
+    }
+}
@@ -0,0 +1,99 @@
+package com.github.cbfiddle.autoformattext2.engine;
+
+import java.util.Arrays;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+  The comment prefixes of a language, as recognized in margins: a view of the trie of all registered prefixes that
+  matches only the prefixes of one language. Instances are obtained from {@link CommentPrefixes} and are immutable.
+  Comment syntaxes are equal if they have the same prefixes.
+*/
+
+public final class CommentSyntax
+{
+    public static final CommentSyntax NONE = new CommentSyntax(new PrefixTrie(new String[0]), 0);
+
+    private final PrefixTrie trie;
+    private final long prefixes;
+
+    // The prefixes in sorted order, computed when the syntax is first compared
+    private volatile @Nullable String[] sortedPrefixes;
+
+    CommentSyntax(@NotNull PrefixTrie trie, long prefixes)
+    {
+        this.trie = trie;
+        this.prefixes = prefixes;
+    }
+
+    /**
+      Return a comment syntax with the specified prefixes, which is not registered for any language. Use
+      {@link CommentPrefixes#forLanguage} for the comment syntax of a language.
+    */
+
+    public static @NotNull CommentSyntax of(@NotNull String... prefixes)
+    {
+        if (prefixes.length == 0) {
+            return NONE;
+        }
+        long mask = prefixes.length == PrefixTrie.MAX_PREFIXES ? -1L : (1L << prefixes.length) - 1;
+        return new CommentSyntax(new PrefixTrie(prefixes), mask);
+    }
+
+    /**
+      Return true if the language has no comment prefixes.
+    */
+
+    public boolean isEmpty()
+    {
+        return prefixes == 0;
+    }
+
+    /**
+      Return the longest comment prefix at {@code start} in the text, excluding the prefixes whose bits are set in
+      {@code excluded}.
+
+      @return the index of the prefix, or -1 if there is none.
+    */
+
+    int match(@NotNull CharSequence text, int start, int end, long excluded)
+    {
+        return trie.longestMatch(text, start, end, prefixes & ~excluded);
+    }
+
+    int getPrefixLength(int prefix)
+    {
+        return trie.getPrefixLength(prefix);
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof CommentSyntax && Arrays.equals(getSortedPrefixes(), ((CommentSyntax) o).getSortedPrefixes());
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Arrays.hashCode(getSortedPrefixes());
+    }
+
+    private @NotNull String[] getSortedPrefixes()
+    {
+        String[] result = sortedPrefixes;
+        if (result == null) {
+            result = new String[Long.bitCount(prefixes)];
+            int count = 0;
+            for (long remaining = prefixes; remaining != 0; remaining &= remaining - 1) {
+                result[count++] = trie.getPrefix(Long.numberOfTrailingZeros(remaining));
+            }
+            Arrays.sort(result);
+            sortedPrefixes = result;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,86 @@
+package com.github.cbfiddle.autoformattext2.engine;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+  The number of columns that characters occupy in a monospaced font: 2 for East Asian wide and fullwidth characters
+  (CJK ideographs, kana, Hangul syllables, and most emoji), 0 for combining marks and other zero width characters, and
+  1 for the rest. A supplementary character, which is a surrogate pair, is measured as one code point.
+  <p>
+  The widths are stored in a two-level table generated from the Unicode Character Database (see
+  {@link DisplayWidthTable}): the high bits of a code point select a block of 256 widths, and identical blocks are
+  shared, so the table takes a few kilobytes. A lookup is two array reads and a shift. ASCII characters, which all
+  have a width of 1, are measured without a lookup.
+*/
+
+public final class DisplayWidth
+{
+    private static final int BLOCK_BITS = DisplayWidthTable.BLOCK_BITS;
+
+    // The block of each range of code points, and the widths of the blocks, 32 code points to a long
+    private static final char[] blockIndex = new char[(Character.MAX_CODE_POINT + 1) >>> BLOCK_BITS];
+    private static final long[] widths;
+
+    static {
+        String runs = DisplayWidthTable.BLOCK_INDEX;
+        int position = 0;
+        for (int i = 0; i < runs.length(); i += 2) {
+            int count = runs.charAt(i);
+            char block = runs.charAt(i + 1);
+            for (int j = 0; j < count; j++) {
+                blockIndex[position++] = block;
+            }
+        }
+        assert position == blockIndex.length;
+
+        String blocks = DisplayWidthTable.BLOCKS;
+        widths = new long[blocks.length() / 4];
+        for (int i = 0; i < widths.length; i++) {
+            widths[i] = blocks.charAt(4 * i) | (long) blocks.charAt(4 * i + 1) << 16
+              | (long) blocks.charAt(4 * i + 2) << 32 | (long) blocks.charAt(4 * i + 3) << 48;
+        }
+    }
+
+    private DisplayWidth()
+    {
+    }
+
+    /**
+      Return the width of a code point. An unpaired surrogate has a width of 1.
+    */
+
+    public static int of(int codePoint)
+    {
+        if (codePoint < 0x80) {
+            return 1;
+        }
+        if (codePoint > Character.MAX_CODE_POINT) {
+            return 1;
+        }
+        int block = blockIndex[codePoint >>> BLOCK_BITS];
+        long bits = widths[(block << (BLOCK_BITS - 5)) | ((codePoint >>> 5) & ((1 << (BLOCK_BITS - 5)) - 1))];
+        return (int) (bits >>> ((codePoint & 31) << 1)) & 3;
+    }
+
+    /**
+      Return the width of the text in the range {@code start} (inclusive) to {@code end} (exclusive).
+    */
+
+    public static int of(@NotNull CharSequence text, int start, int end)
+    {
+        int width = end - start;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                // Correct the count of one column per char
+                int codePoint = c;
+                if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    codePoint = Character.toCodePoint(c, text.charAt(++i));
+                    width--;
+                }
+                width += of(codePoint) - 1;
+            }
+        }
+        return width;
+    }
+}
@@ -0,0 +1,252 @@
+package com.github.cbfiddle.autoformattext2.engine;
+
+/**
+  The packed data of {@link DisplayWidth}, generated by {@code engine/tools/generate_display_width.py} from the
+  Unicode 14.0.0 Character Database. Do not edit.
+*/
+
+final class DisplayWidthTable
+{
+    private DisplayWidthTable()
+    {
+    }
+
+    static final int BLOCK_BITS = 8;
+
+    /**
+      The index of the block of widths of each range of {@code 1 << BLOCK_BITS} code points, as run length encoded
+      (count, block) pairs.
+    */
+
+    static final String BLOCK_INDEX =
+        "\u0001\u0000\u0002\u0001\u0001\u0002\u0001\u0003\u0001\u0004\u0001\u0005\u0001\u0006\u0001\u0007" +
+        "\u0001\u0008\u0001\u0009\u0001\n\u0001\u000b\u0001\u000c\u0001\r\u0001\u000e\u0001\u000f" +
+        "\u0001\u0010\u0001\u0001\u0001\u0011\u0003\u0001\u0001\u0012\u0001\u0013\u0001\u0014\u0001\u0015" +
+        "\u0001\u0016\u0001\u0017\u0001\u0018\u0002\u0001\u0001\u0019\u0002\u0001\u0001\u001a\u0001\u0001" +
+        "\u0001\u001b\u0001\u001c\u0001\u001d\u0003\u0001\u0001\u001e\u0001\u001f\u0001\u0020\u0001\u0021" +
+        "\u0001\"\u0001\u0023\u0001\u0024\u0001\u0025\u001a\u0026\u0001\u0027\u0056\u0026\u0001\u0028" +
+        "\u0001\u0001\u0001\u0029\u0001\u0001\u0001\u002a\u0001\u002b\u0001\u002c\u0001\u002d\u002b\u0026" +
+        "\u0001\u002e\u0021\u0001\u0002\u0026\u0001\u002f\u0002\u0001\u0001\u0030\u0001\u0031\u0001\u0001" +
+        "\u0001\u0032\u0001\u0033\u0001\u0034\u0006\u0001\u0001\u0035\u0002\u0001\u0001\u0036\u0001\u0037" +
+        "\u0001\u0038\u0001\u0039\u0001\u003a\u0001\u003b\u0001\u003c\u0001\u003d\u0001\u003e\u0001\u003f" +
+        "\u0001\u0040\u0001\u0041\u0001\u0042\u0001\u0043\u0001\u0001\u0001\u0044\u0001\u0045\u0001\u0046" +
+        "\u0015\u0001\u0001\u0047\u0035\u0001\u0001\u0048\u0001\u0049\u0003\u0001\u0001\u004a\u0017\u0026" +
+        "\u0001\u004b\u0004\u0026\u0001\u004c\u0001\u004d\u0021\u0001\u0001\u004e\u0001\u0026\u0001\u004f" +
+        "\u0001\u0050\u0009\u0001\u0001\u0051\u0012\u0001\u0001\u0052\u0001\u0001\u0001\u0053\u0001\u0054" +
+        "\u0007\u0001\u0001\u0055\u0005\u0001\u0001\u0056\u0001\u0049\u0001\u0057\u0005\u0001\u0001\u0058" +
+        "\u0001\u0059\u0006\u0001\u0001\u005a\u0001\u005b\u0001\\\u0001\u005d\u0001\u005e\u0001\u005f" +
+        "\u0001\u0060\u0001\u0061\u0001\u0001\u0001\u0062\u0001\u0063\u0005\u0001\u00ff\u0026\u0001\u0064" +
+        "\u00ff\u0026\u0001\u0064\u0a00\u0001\u0001\u0065\u0001\u0066\u02fe\u0001";
+
+    /**
+      The widths of the distinct blocks, two bits per code point, eight code points per char.
+    */
+
+    static final String BLOCKS =
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u0000\u0000\u0000\u0000\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u0015\u5550\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u0001\u0000\u0000\u0000\u0000\u1000\u1041\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5000\u5555\u0000\u5440\u5555\u5555\u5555\u5555\u5555\u0015\u0000\u0000\u5555\u5555\u5554\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u0555\u1000\u1400\u5004\u5555\u5555" +
+        "\u5555\u1555\u5551\u5555\u5555\u5555\u0000\u0000\u0000\u5540\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u0555\u0000\u5554\u5555\u5555\u5555\u5555\u5555\u5555\u0015\u5500\u5155" +
+        "\u5555\u5555\u0555\u0010\u0100\u5001\u5555\u5555\u5555\u5555\u5555\u5501\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5550\u0000\u5555\u5555\u5555\u5555\u5555\u0005\u0000\u0000\u0000\u0000\u0000\u0000" +
+        "\u5540\u5555\u5555\u5555\u5555\u5555\u5555\u5445\u0001\u5154\u0001\u5555\u5505\u5555\u5555\u5555" +
+        "\u5551\u5555\u5555\u5555\u5555\u5555\u5555\u5455\u5401\u5155\u5555\u5555\u5505\u5555\u5555\u4555" +
+        "\u5541\u5555\u5555\u5555\u5555\u5555\u5555\u5455\u1541\u5014\u5551\u5555\u5555\u5555\u5150\u5555" +
+        "\u5541\u5555\u5555\u5555\u5555\u5555\u5555\u5455\u1001\u5154\u5555\u5555\u5505\u5555\u5555\u0005" +
+        "\u5551\u5555\u5555\u5555\u5555\u5555\u5555\u1455\u5401\u5155\u4155\u5555\u5505\u5555\u5555\u5555" +
+        "\u5545\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5554\u5155\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5454\u5555\u5555\u5555\u5555\u5555\u5555\u0455\u0554\u5004\u4155\u5555\u5505\u5555\u5555\u5555" +
+        "\u5551\u5555\u5555\u5555\u5555\u5555\u5555\u1455\u4555\u5055\u5555\u5555\u5505\u5555\u5555\u5555" +
+        "\u5550\u5555\u5555\u5555\u5555\u5555\u5555\u5415\u5401\u5155\u5555\u5555\u5505\u5555\u5555\u5555" +
+        "\u5551\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5545\u4405\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u0051\u5540\u1555\u4000\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u0051\u5400\u5555\u5000\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5550\u5555\u5555\u1155\u5551\u5555\u5555\u5555\u5555\u5555\u5555\u0001\u4000" +
+        "\u0400\u0155\u0000\u0001\u0000\u0000\u0000\u5400\u4555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u0155\u0004\u4141\u5555\u5555\u5555\u0550\u5554\u5555\u5401\u5555" +
+        "\u4145\u5155\u5555\u5155\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\u0000\u0000\u0000\u0000" +
+        "\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u0155\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5405\u5555\u5555\u5555\u5505\u5555\u5555\u5555\u5505\u5555\u5555\u5555\u5505\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u1055\u5000\u4555\u0001\u5500\u5155\u5555\u5555\u5555\u5555" +
+        "\u5555\u0015\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u4155\u5555\u5555\u5555\u5555\u5551\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u1540\u5554\u5545\u5501\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u1555\u5514\u5555\u5555\u5555\u5555\u5555\u5555\u4555\u4000\u0144\u5400\u0015\u1400" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u0000\u0000\u0000\u4000\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5500\u5555\u5555\u5555\u5555\u5555\u0455\u5440\u5545\u5555\u5555\u5555\u5555\u0015\u5500\u5555" +
+        "\u5550\u5555\u5555\u5555\u5005\u5010\u5555\u5555\u5555\u5555\u5555\u5555\u4555\u1150\u5550\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u0055\u0500\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u0040\u0000\u0004\u5154\u5455\u5550" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000" +
+        "\u5555\u0015\u5555\u5555\u5555\u4005\u5555\u5555\u5555\u5555\u5555\u5555\u0400\u0000\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u0000\u0000\u0000\u0000\u5554\u5555" +
+        "\u5555\u5555\u5555\u55a5\u5555\u5569\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u56a9\u5596\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u6955" +
+        "\u5555\u5555\u5a55\u5555\u5555\u5555\u5555\u5555\u5555\uaaaa\u55aa\u5555\u5555\u5555\u5555\u9555" +
+        "\u5555\u5555\u5595\u5555\u5559\u55a5\u5555\u6955\u5a55\u6555\u5655\u5555\u5555\u5565\u59a5\u5965" +
+        "\u5955\u55a5\u5555\u5555\u5555\u5556\u5555\u5555\u5555\u6655\u9a95\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\ua955\u5555\u5555\u5555\u5556\u9555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5695\u5555\u5555\u5555\u5555\u5555\u5555\u5956\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u1555\u5550\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u1555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u0000\u0000\u0000\u0000" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\uaaaa\uaaaa\uaaaa\uaa9a\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\u55aa\u5555" +
+        "\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa" +
+        "\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\u5aaa\u5555\u5555\u5555\uaaaa\u55aa" +
+        "\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\ua00a\uaaaa\u6aaa\uaaa9\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa" +
+        "\uaaaa\uaaaa\u6aaa\uaa81\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa" +
+        "\ua955\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaa9\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa" +
+        "\uaaaa\u6aaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\u55aa\u5555\uaaaa\uaaaa" +
+        "\uaaaa\uaaaa\uaaaa\u6aaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\u5555\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa" +
+        "\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa" +
+        "\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa" +
+        "\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa" +
+        "\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa" +
+        "\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa" +
+        "\uaaaa\u56aa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\u6aaa\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u1555\u0040\u5000" +
+        "\u5555\u5555\u5555\u0555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5550\u5555" +
+        "\u4545\u5515\u5555\u5555\u4155\u5455\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5055\u5555\u5555\u5555\u0000\u0000\u5550\u1555" +
+        "\u5555\u5555\u5555\u5555\u0555\u5000\u5555\u5555\u1555\u0000\u5550\u5555\uaaaa\uaaaa\uaaaa\u56aa" +
+        "\u5540\u5555\u5555\u5555\u5555\u5555\u0515\u5050\u5555\u5555\u5555\u5555\u5155\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u4001\u4141\u5555\u5515\u5455\u5555\u5555\u5555\u5555\u5555\u5455" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u1404\u0554\u5551\u5555\u5555\u5555\u5555\u5055\u4555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5155\u5154\u5555\u5555" +
+        "\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa" +
+        "\uaaaa\uaaaa\uaaaa\uaaaa\u55aa\u5555\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000" +
+        "\u5555\u5555\u5555\u4555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u0000\u0000\uaaaa\u555a\u0000\u0000\uaaaa\uaaaa\uaaaa\uaaaa\uaa6a\uaaaa\u6aaa\u55aa\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u1555" +
+        "\uaaa9\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\u5556\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u6aaa\u5555\u5555\u5501" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5155" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5554\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u0555\u5540" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u4101\u0055\u5555\u5555\u5555\u5555\u5555\u1540\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u4155\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u0055\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5415\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u0555\u0000\u5554\u5555\u5555\u5555\u5555\u5555" +
+        "\u5005\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5551\u5555\u5555\u5555\u5555\u5555\u5555\u0000\u4000\u5555\u5555\u5555\u5555\u5555\u5414\u1555" +
+        "\u5550\u5555\u5555\u5555\u5555\u5555\u4015\u5141\u5545\u5155\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5540\u5555\u5555\u5555\u1555\u0100\u5400\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5515\u5555" +
+        "\u5550\u5555\u5555\u5555\u5555\u5555\u0555\u4000\u5555\u1401\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u1555\u0450\u4555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u1555\u0015\u5540\u5555\u5555" +
+        "\u5550\u5555\u5555\u5555\u5555\u5555\u5555\u5415\u5554\u5555\u5555\u5555\u0555\u5400\u5400\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u0000\u4405\u5555\u5555\u4555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u0015\u1544\u5504\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5005\u1055\u5554\u5555\u5555\u5055\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u0015\u1140\u5554\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5115\u1000\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u0155\u1005\u5500\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u1555\u0000\u5541\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u4415\u5515\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u0055\u5505\u5554\u5555\u5555\u5555" +
+        "\u0001\u5540\u5555\u5555\u5555\u5555\u0015\u4014\u1555\u5555\u4001\u5501\u5555\u5555\u5555\u5555" +
+        "\u5555\u0005\u4000\u5550\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u4000\u1000\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u0005\u0000\u0000\u0005\u4104\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u4001\u1045\u1000\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u1150\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5415\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u0000\u5554\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5400\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u4000\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u1555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u1555\u5540\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u54aa\u5555\u555a\u5555" +
+        "\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa" +
+        "\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\u5555" +
+        "\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa" +
+        "\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\u5aaa\u5555\u5555\u5555\u5555\u5555" +
+        "\uaaaa\u5556\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\ua9aa\u69aa" +
+        "\uaaaa\uaaaa\uaaaa\uaaaa\u556a\u5555\u5555\u5555\u5555\u5555\u556a\u5555\uaa55\u5555\uaaaa\uaaaa" +
+        "\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa" +
+        "\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa" +
+        "\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\u55aa" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u4155\u5500\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u0000\u0000\u0000\u0000\u0000\u5000\u0000\u0000\u4000\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u1555\u5550\u0015\u0000" +
+        "\u0140\u5500\u5555\u5555\u5555\u5005\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5405\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u0000\u0000\u0000\u0000\u0000\u0000\u4000\u0015\u0000\u0000\u0000\u0000\u0000\u5400\u5155\u5555" +
+        "\u5455\u5555\u5555\u0015\u0001\u0000\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u4000\u0000\u0000\u0014\u0410\u5540\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u4555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u0055\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u4000\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u0055\u5540\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5655\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u9555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u6555\uaaa9\u556a\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u556a\u5555\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\u55aa\uaaaa\u5556\u555a\u5555\u5aaa\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\uaaaa\uaaaa\uaaaa\uaaaa\u5556\ua955\u9aaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\ua6aa" +
+        "\uaaaa\uaaaa\u55aa\u5555\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\u956a\u55aa\u5555\uaaaa\uaaaa\u5656\uaaaa" +
+        "\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\u6aaa\uaaa6\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa" +
+        "\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\u96aa" +
+        "\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\u5aaa\u5555\u6a95\uaaaa\uaaaa\uaaaa\u5555\u5555\u5565" +
+        "\u5555\u5555\u6955\u5555\u5655\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\uaa95" +
+        "\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\u5aaa\u5655\ua96a\ua955\u5555\u5695\uaa55\u56aa" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\uaaaa\u55aa\u5556\u5555" +
+        "\u5555\uaa55\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaa6a\u9aaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa" +
+        "\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u56aa\u56aa" +
+        "\u6aaa\u5555\uaaaa\uaaaa\uaaaa\u56aa\uaaaa\u556a\u5aaa\u5555\uaaaa\u555a\uaaaa\u5555\u6aaa\u5555" +
+        "\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa" +
+        "\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\uaaaa\u5aaa" +
+        "\u5551\u5555\u5555\u5555\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000" +
+        "\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555\u5555" +
+        "\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000" +
+        "\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u5555\u5555";
+}
@@ -0,0 +1,369 @@
+package com.github.cbfiddle.autoformattext2.engine;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+  Finds the points at which words may be hyphenated, using Liang's algorithm and the hyphenation patterns of TeX. A
+  pattern is a string of letters with a digit between some of them, such as {@code hen5at}; {@code .} matches the start
+  or end of a word. Every pattern that occurs in a word gives a level to the points between its letters, and the
+  word may be hyphenated where the highest level given to a point is odd.
+  <p>
+  The patterns of a language are read from a resource {@code hyphenation/hyph-<language>.pat.txt}, in the format of
+  the hyph-utf8 project, the first time the language is requested. They are stored in a double-array trie: each state
+  has a base, and the transition on a character leads to the state at the base plus the code of the character if
+  that state records the source state as its parent. Following a transition is two array reads, the trie takes three
+  ints per state, and a lookup allocates nothing. A hyphenator is immutable and may be shared by several threads.
+*/
+
+public final class Hyphenator
+{
+    // The shortest parts of a word that are split off, as in TeX for English
+    private static final int LEFT_MIN = 2;
+    private static final int RIGHT_MIN = 3;
+
+    private static final Map<String,Hyphenator> languages = new ConcurrentHashMap<>();
+
+    // The code of each character that occurs in a pattern, indexed by character. Code 0 is unused.
+    private final char[] codes;
+
+    // For each state: the base of its transitions, its parent plus one (0 if the slot is free), and the start of its
+    // levels in the level array plus one (0 if no pattern ends in this state)
+    private final int[] base;
+    private final int[] check;
+    private final int[] levelStarts;
+
+    // The levels of the patterns, one per point of the pattern, including the points before and after it
+    private final byte[] levels;
+
+    private Hyphenator(@NotNull List<String> patterns)
+    {
+        // The letters of each pattern and their levels
+        int count = patterns.size();
+        String[] keys = new String[count];
+        byte[][] keyLevels = new byte[count][];
+        char maxChar = '.';
+        for (int i = 0; i < count; i++) {
+            String pattern = patterns.get(i);
+            StringBuilder letters = new StringBuilder(pattern.length());
+            byte[] points = new byte[pattern.length() + 1];
+            for (int j = 0; j < pattern.length(); j++) {
+                char c = pattern.charAt(j);
+                if (c >= '0' && c <= '9') {
+                    points[letters.length()] = (byte) (c - '0');
+                } else {
+                    letters.append(Character.toLowerCase(c));
+                    maxChar = (char) Math.max(maxChar, Character.toLowerCase(c));
+                }
+            }
+            keys[i] = letters.toString();
+            keyLevels[i] = Arrays.copyOf(points, letters.length() + 1);
+        }
+
+        codes = new char[maxChar + 1];
+        int codeCount = 0;
+        for (String key : keys) {
+            for (int j = 0; j < key.length(); j++) {
+                if (codes[key.charAt(j)] == 0) {
+                    codes[key.charAt(j)] = (char) ++codeCount;
+                }
+            }
+        }
+
+        // Sort the patterns by the codes of their letters, so that the patterns that share a prefix are adjacent
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> compareCodes(keys[a], keys[b]));
+        String[] sortedKeys = new String[count];
+        byte[][] sortedLevels = new byte[count][];
+        int levelCount = 0;
+        for (int i = 0; i < count; i++) {
+            sortedKeys[i] = keys[order[i]];
+            sortedLevels[i] = keyLevels[order[i]];
+            levelCount += sortedLevels[i].length;
+        }
+
+        Builder builder = new Builder(codeCount, levelCount);
+        if (count > 0) {
+            builder.build(0, sortedKeys, sortedLevels, 0, count, 0);
+        }
+        int size = builder.size();
+        base = Arrays.copyOf(builder.base, size);
+        check = Arrays.copyOf(builder.check, size);
+        levelStarts = Arrays.copyOf(builder.levelStarts, size);
+        levels = Arrays.copyOf(builder.levels, builder.levelCount);
+    }
+
+    /**
+      Return the hyphenator for the specified language, such as {@code en-us}, loading its patterns if necessary, or
+      null if there are no patterns for the language.
+    */
+
+    public static @Nullable Hyphenator forLanguage(@NotNull String language)
+    {
+        Hyphenator hyphenator = languages.get(language);
+        if (hyphenator == null && language.matches("[a-z0-9-]+")) {
+            InputStream in = Hyphenator.class.getResourceAsStream("hyphenation/hyph-" + language + ".pat.txt");
+            if (in != null) {
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+                    StringBuilder sb = new StringBuilder();
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        sb.append(line).append('\n');
+                    }
+                    hyphenator = parse(sb);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                Hyphenator previous = languages.putIfAbsent(language, hyphenator);
+                if (previous != null) {
+                    hyphenator = previous;
+                }
+            }
+        }
+        return hyphenator;
+    }
+
+    /**
+      Create a hyphenator from patterns separated by white space. A {@code %} starts a comment that extends to the end
+      of the line.
+    */
+
+    public static @NotNull Hyphenator parse(@NotNull CharSequence text)
+    {
+        List<String> patterns = new ArrayList<>();
+        int i = 0;
+        int length = text.length();
+        while (i < length) {
+            char c = text.charAt(i);
+            if (c == '%') {
+                while (i < length && text.charAt(i) != '\n') {
+                    i++;
+                }
+            } else if (Character.isWhitespace(c)) {
+                i++;
+            } else {
+                int start = i;
+                while (i < length && !Character.isWhitespace(text.charAt(i)) && text.charAt(i) != '%') {
+                    i++;
+                }
+                patterns.add(text.subSequence(start, i).toString());
+            }
+        }
+        return new Hyphenator(patterns);
+    }
+
+    /**
+      Find the points at which the text in the range {@code start} (inclusive) to {@code end} (exclusive) may be
+      hyphenated. On return, {@code points[i]} is odd if the text may be hyphenated before the character at
+      {@code start + i}, and zero or even otherwise. Each run of letters is hyphenated as a word, and a hyphen is never
+      inserted next to another character; at least two letters precede a hyphen and three follow it.
+
+      @param points An array with at least {@code end - start + 1} elements.
+    */
+
+    public void hyphenate(@NotNull CharSequence text, int start, int end, @NotNull byte[] points)
+    {
+        Arrays.fill(points, 0, end - start + 1, (byte) 0);
+        int i = start;
+        while (i < end) {
+            if (!Character.isLetter(text.charAt(i))) {
+                i++;
+                continue;
+            }
+            int runStart = i;
+            while (i < end && Character.isLetter(text.charAt(i))) {
+                i++;
+            }
+            if (i - runStart >= LEFT_MIN + RIGHT_MIN) {
+                hyphenateWord(text, runStart, i, points, runStart - start);
+            }
+        }
+    }
+
+    /**
+      Apply the patterns to a word. The word is matched as if it were surrounded by dots, so the position p in the
+      dotted word is the character at {@code start + p - 1}, and the point before it is the point before that
+      character.
+    */
+
+    private void hyphenateWord(@NotNull CharSequence text, int start, int end, @NotNull byte[] points, int offset)
+    {
+        int length = end - start;
+        for (int i = 0; i < length + 2; i++) {
+            int state = 0;
+            for (int j = i; j < length + 2; j++) {
+                char c = j == 0 || j == length + 1 ? '.' : Character.toLowerCase(text.charAt(start + j - 1));
+                int code = c < codes.length ? codes[c] : 0;
+                if (code == 0) {
+                    break;
+                }
+                int next = base[state] + code;
+                if (next >= check.length || check[next] != state + 1) {
+                    break;
+                }
+                state = next;
+                int levelStart = levelStarts[state];
+                if (levelStart != 0) {
+                    // The levels of the points from before position i to after position j
+                    for (int k = 0; k <= j - i + 1; k++) {
+                        int point = i + k - 1;
+                        byte level = levels[levelStart - 1 + k];
+                        if (point >= LEFT_MIN && point <= length - RIGHT_MIN && level > points[offset + point]) {
+                            points[offset + point] = level;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private int compareCodes(@NotNull String a, @NotNull String b)
+    {
+        int length = Math.min(a.length(), b.length());
+        for (int i = 0; i < length; i++) {
+            int difference = codes[a.charAt(i)] - codes[b.charAt(i)];
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return a.length() - b.length();
+    }
+
+    /**
+      Builds the double array. The patterns are sorted, so the patterns that pass through a state form a range, and
+      the children of a state are the distinct letters that follow its prefix in that range. Each state is given the
+      lowest base at which the slots of all of its children are free.
+    */
+
+    private final class Builder
+    {
+        private final int codeCount;
+        int[] base = new int[1024];
+        int[] check = new int[1024];
+        int[] levelStarts = new int[1024];
+        byte[] levels;
+        int levelCount;
+
+        private int maxState;
+
+        // The slot at which the search for a base starts
+        private int firstFree = 1;
+
+        Builder(int codeCount, int levelCapacity)
+        {
+            this.codeCount = codeCount;
+            this.levels = new byte[levelCapacity];
+            check[0] = 1;
+        }
+
+        int size()
+        {
+            return maxState + 1;
+        }
+
+        /**
+          Add the states that follow {@code state}, whose prefix is {@code depth} letters of the patterns in the range
+          {@code from} (inclusive) to {@code to} (exclusive).
+        */
+
+        void build(int state, @NotNull String[] keys, @NotNull byte[][] keyLevels, int from, int to, int depth)
+        {
+            // A pattern that ends here is first in the range, as it is a prefix of the others. A repeated pattern
+            // gives each point its highest level.
+            if (keys[from].length() == depth) {
+                levelStarts[state] = levelCount + 1;
+                System.arraycopy(keyLevels[from], 0, levels, levelCount, depth + 1);
+                for (from++; from < to && keys[from].length() == depth; from++) {
+                    for (int k = 0; k <= depth; k++) {
+                        levels[levelCount + k] = (byte) Math.max(levels[levelCount + k], keyLevels[from][k]);
+                    }
+                }
+                levelCount += depth + 1;
+            }
+            if (from == to) {
+                return;
+            }
+
+            int[] childCodes = new int[codeCount];
+            int childCount = 0;
+            for (int i = from; i < to; i++) {
+                int code = codes[keys[i].charAt(depth)];
+                if (childCount == 0 || childCodes[childCount - 1] != code) {
+                    childCodes[childCount++] = code;
+                }
+            }
+
+            // The slots before firstFree are all used. When the slots the search passes over are nearly all used, the
+            // search for the next state starts where this one ended, leaving a few free slots unused.
+            int b = Math.max(firstFree - childCodes[0], 1);
+            int used = 0;
+            search:
+            while (true) {
+                ensureCapacity(b + childCodes[childCount - 1]);
+                if (check[b + childCodes[0]] != 0) {
+                    used++;
+                    b++;
+                    continue;
+                }
+                for (int k = 1; k < childCount; k++) {
+                    if (check[b + childCodes[k]] != 0) {
+                        b++;
+                        continue search;
+                    }
+                }
+                break;
+            }
+            int passed = b + childCodes[0] - firstFree;
+            if (passed > 0 && used >= passed * 0.95) {
+                firstFree = b + childCodes[0];
+            }
+            base[state] = b;
+            for (int k = 0; k < childCount; k++) {
+                int child = b + childCodes[k];
+                check[child] = state + 1;
+                maxState = Math.max(maxState, child);
+            }
+            while (true) {
+                ensureCapacity(firstFree);
+                if (check[firstFree] == 0) {
+                    break;
+                }
+                firstFree++;
+            }
+
+            int i = from;
+            for (int k = 0; k < childCount; k++) {
+                int rangeStart = i;
+                while (i < to && codes[keys[i].charAt(depth)] == childCodes[k]) {
+                    i++;
+                }
+                build(b + childCodes[k], keys, keyLevels, rangeStart, i, depth + 1);
+            }
+        }
+
+        private void ensureCapacity(int index)
+        {
+            if (index >= check.length) {
+                int capacity = Math.max(2 * check.length, index + 1);
+                base = Arrays.copyOf(base, capacity);
+                check = Arrays.copyOf(check, capacity);
+                levelStarts = Arrays.copyOf(levelStarts, capacity);
+            }
+        }
+    }
+}
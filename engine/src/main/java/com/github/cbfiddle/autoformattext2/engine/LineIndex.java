@@ -0,0 +1,32 @@
+package com.github.cbfiddle.autoformattext2.engine;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+  The line structure of a text. Lines are separated by newline characters; the end offset of a line excludes its
+  line separator. A text always has at least one line, and a text that ends with a newline has an empty last line.
+*/
+
+public interface LineIndex
+{
+    int getLineCount();
+
+    /**
+      Return the line containing the specified offset. The end of the text belongs to the last line.
+    */
+
+    int getLineNumber(int offset);
+
+    int getLineStartOffset(int line);
+
+    int getLineEndOffset(int line);
+
+    /**
+      Create a line index for the specified text.
+    */
+
+    static @NotNull LineIndex of(@NotNull CharSequence text)
+    {
+        return new TextLineIndex(text);
+    }
+}
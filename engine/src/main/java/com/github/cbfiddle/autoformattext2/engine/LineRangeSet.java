@@ -0,0 +1,115 @@
+package com.github.cbfiddle.autoformattext2.engine;
+
+import java.util.Arrays;
+
+/**
+  A set of line numbers, stored as sorted, disjoint ranges of lines that are not adjacent. The set is kept up to date
+  as the text changes: lines inserted or deleted by an edit move the ranges that follow it, and the lines it replaced
+  are added to the set.
+  <p>
+  The ranges are packed in an int array as start/end pairs; both ends are inclusive. An edit merges the ranges it
+  touches and shifts the ones that follow it, so its cost is proportional to the number of ranges, which is small
+  compared to the number of lines when the edits are clustered.
+*/
+
+public final class LineRangeSet
+{
+    private int[] ranges = new int[8];
+    private int count;
+
+    public boolean isEmpty()
+    {
+        return count == 0;
+    }
+
+    /**
+      Return the number of ranges.
+    */
+
+    public int size()
+    {
+        return count;
+    }
+
+    public int getStart(int range)
+    {
+        return ranges[2 * range];
+    }
+
+    public int getEnd(int range)
+    {
+        return ranges[2 * range + 1];
+    }
+
+    public void clear()
+    {
+        count = 0;
+    }
+
+    /**
+      Add the lines from {@code startLine} to {@code endLine} (inclusive) to the set.
+    */
+
+    public void add(int startLine, int endLine)
+    {
+        update(startLine, endLine, endLine);
+    }
+
+    /**
+      Update the set after an edit that replaced the lines {@code startLine} to {@code oldEndLine} with the lines
+      {@code startLine} to {@code newEndLine} (all inclusive), and add the new lines to the set.
+    */
+
+    public void update(int startLine, int oldEndLine, int newEndLine)
+    {
+        int delta = newEndLine - oldEndLine;
+
+        // The ranges that overlap or are adjacent to the replaced lines are merged with the new lines. The part of a
+        // range that follows the replaced lines moves with them.
+        int first = findFirst(startLine - 1);
+        int last = first;
+        int mergedStart = startLine;
+        int mergedEnd = newEndLine;
+        while (last < count && getStart(last) <= oldEndLine + 1) {
+            mergedStart = Math.min(mergedStart, getStart(last));
+            if (getEnd(last) > oldEndLine) {
+                mergedEnd = Math.max(mergedEnd, getEnd(last) + delta);
+            }
+            last++;
+        }
+
+        int newCount = count - (last - first) + 1;
+        if (2 * newCount > ranges.length) {
+            ranges = Arrays.copyOf(ranges, Math.max(2 * newCount, 2 * ranges.length));
+        }
+        System.arraycopy(ranges, 2 * last, ranges, 2 * (first + 1), 2 * (count - last));
+        ranges[2 * first] = mergedStart;
+        ranges[2 * first + 1] = mergedEnd;
+        if (delta != 0) {
+            for (int i = 2 * (first + 1); i < 2 * newCount; i++) {
+                ranges[i] += delta;
+            }
+        }
+        count = newCount;
+    }
+
+    /**
+      Return the index of the first range that ends at or after the specified line, or the number of ranges if there
+      is none.
+    */
+
+    private int findFirst(int line)
+    {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (getEnd(middle) < line) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+}
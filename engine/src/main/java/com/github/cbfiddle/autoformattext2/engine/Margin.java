@@ -0,0 +1,118 @@
+package com.github.cbfiddle.autoformattext2.engine;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+  The left margin of a line of text, as identified by {@link MarginRecognizer}. A margin is described by its position
+  in the text rather than by a copy of its characters. Instances are mutable so that a single instance can be reused
+  while scanning many lines.
+*/
+
+public final class Margin
+{
+    /** The offset of the first character of the margin (the start of the line). */
+    int start;
+
+    /** The number of characters in the margin. */
+    int length;
+
+    /** The offset of the bullet text within the margin, relative to {@link #start}, or -1 if there is no bullet. */
+    int bulletStart = -1;
+
+    /** The end of the bullet text within the margin, relative to {@link #start}, or -1 if there is no bullet. */
+    int bulletEnd = -1;
+
+    /** The display width of the margin, taking tabs into account. */
+    int width;
+
+    /** True if the margin contains a comment token. */
+    boolean comment;
+
+    public int getStart()
+    {
+        return start;
+    }
+
+    public int getLength()
+    {
+        return length;
+    }
+
+    public int getBulletStart()
+    {
+        return bulletStart;
+    }
+
+    public int getBulletEnd()
+    {
+        return bulletEnd;
+    }
+
+    public int getWidth()
+    {
+        return width;
+    }
+
+    public boolean isComment()
+    {
+        return comment;
+    }
+
+    /**
+      Return true if the margin contains bullet text. Bullet text is converted to spaces on lines other than the
+      first line of a paragraph.
+    */
+
+    public boolean hasBullet()
+    {
+        return bulletStart >= 0;
+    }
+
+    /**
+      Return the character at the specified index of the margin as it appears on the first line of a paragraph or,
+      if {@code isFirstLine} is false, with bullet text converted to spaces.
+    */
+
+    public char charAt(@NotNull CharSequence text, int index, boolean isFirstLine)
+    {
+        if (!isFirstLine && index >= bulletStart && index < bulletEnd) {
+            return ' ';
+        }
+        return text.charAt(start + index);
+    }
+
+    /**
+      Return true if the text of this margin is the same as the text of another margin. Either margin may be viewed
+      as it appears on a first line (bullets included) or on a continuation line (bullets converted to spaces).
+    */
+
+    public boolean sameText(@NotNull CharSequence text,
+                            boolean isFirstLine,
+                            @NotNull Margin other,
+                            @NotNull CharSequence otherText,
+                            boolean otherIsFirstLine)
+    {
+        if (length != other.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (charAt(text, i, isFirstLine) != other.charAt(otherText, i, otherIsFirstLine)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+      Return a copy of the margin text, with bullets converted to spaces if {@code isFirstLine} is false.
+    */
+
+    public @NotNull String getText(@NotNull CharSequence text, boolean isFirstLine)
+    {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(charAt(text, i, isFirstLine));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,222 @@
+package com.github.cbfiddle.autoformattext2.engine;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+  Identifies the left margin of a line of text. The left margin might include comment prefixes of the language (see
+  {@link CommentPrefixes}; in Java, the first {@code //} and the first asterisk), and bullet text: one of the bullet
+  characters (by default {@code # * - @}) or an enumeration like {@code 1)}, {@code (a)} or {@code (A)}.
+  <p>
+  The recognizer is a single pass state machine over a range of a character sequence. It does not compile patterns
+  or allocate strings; the result is stored in a reusable {@link Margin}.
+*/
+
+public final class MarginRecognizer
+{
+    public static final String DEFAULT_BULLETS = "#*-@";
+
+    private final CommentSyntax commentSyntax;
+    private final String bullets;
+    private final int tabSize;
+
+    // The ASCII bullet characters, as a bit set
+    private final long bulletChars0;
+    private final long bulletChars1;
+
+    /**
+      Create a margin recognizer.
+      @param commentSyntax The comment prefixes that are recognized as part of the margin.
+      @param bullets The characters that are recognized as bullets.
+      @param tabSize The tab size used to compute the margin width.
+    */
+
+    public MarginRecognizer(@NotNull CommentSyntax commentSyntax, @NotNull String bullets, int tabSize)
+    {
+        this.commentSyntax = commentSyntax;
+        this.bullets = bullets;
+        this.tabSize = Math.max(tabSize, 1);
+
+        long chars0 = 0;
+        long chars1 = 0;
+        for (int i = 0; i < bullets.length(); i++) {
+            char c = bullets.charAt(i);
+            if (c < 64) {
+                chars0 |= 1L << c;
+            } else if (c < 128) {
+                chars1 |= 1L << (c - 64);
+            }
+        }
+        this.bulletChars0 = chars0;
+        this.bulletChars1 = chars1;
+    }
+
+    /**
+      Create a margin recognizer that recognizes the default bullet characters.
+      @param commentSyntax The comment prefixes that are recognized as part of the margin.
+      @param tabSize The tab size used to compute the margin width.
+    */
+
+    public MarginRecognizer(@NotNull CommentSyntax commentSyntax, int tabSize)
+    {
+        this(commentSyntax, DEFAULT_BULLETS, tabSize);
+    }
+
+    /**
+      Create a margin recognizer.
+      @param javaComments If true, a leading {@code *} and a leading {@code //} are recognized as part of the margin.
+      @param tabSize The tab size used to compute the margin width.
+    */
+
+    public MarginRecognizer(boolean javaComments, int tabSize)
+    {
+        this(javaComments ? CommentPrefixes.forLanguage("JAVA") : CommentSyntax.NONE, tabSize);
+    }
+
+    public @NotNull CommentSyntax getCommentSyntax()
+    {
+        return commentSyntax;
+    }
+
+    public @NotNull String getBullets()
+    {
+        return bullets;
+    }
+
+    public int getTabSize()
+    {
+        return tabSize;
+    }
+
+    /**
+      Return true if the specified recognizer finds the same margin text on every line as this one. The margin widths
+      may differ, as the tab size is not compared.
+    */
+
+    public boolean hasSameSyntax(@NotNull MarginRecognizer other)
+    {
+        return commentSyntax.equals(other.commentSyntax) && bullets.equals(other.bullets);
+    }
+
+    /**
+      Identify the left margin of the line in the range {@code start} (inclusive) to {@code end} (exclusive) of the
+      specified text. The line must not contain a line separator.
+
+      @param margin The margin to update with the result.
+      @return the length of the margin.
+    */
+
+    public int recognize(@NotNull CharSequence text, int start, int end, @NotNull Margin margin)
+    {
+        long foundPrefixes = 0;
+        boolean foundTextBullet = false;
+        int bulletStart = -1;
+        int bulletEnd = -1;
+        int col = 0;
+
+        int i = start;
+        while (i < end) {
+            char c = text.charAt(i);
+            int next;
+            int prefix;
+            if (c == ' ' || c == '\t') {
+                next = i + 1;
+            } else if ((prefix = commentSyntax.match(text, i, end, foundPrefixes)) >= 0) {
+                // The first occurrence of each comment prefix belongs to the margin
+                foundPrefixes |= 1L << prefix;
+                next = i + commentSyntax.getPrefixLength(prefix);
+            } else if (foundTextBullet) {
+                break;
+            } else if (isBullet(c)) {
+                foundTextBullet = true;
+                next = i + 1;
+                bulletStart = i - start;
+                bulletEnd = next - start;
+            } else {
+                // Try to match more complex enumerations, like 1) or (a)
+                next = enumerationEnd(text, i, end);
+                if (next < 0) {
+                    break;
+                }
+                foundTextBullet = true;
+                bulletStart = i - start;
+                bulletEnd = next - start;
+            }
+
+            for (; i < next; i++) {
+                col = advance(col, text.charAt(i));
+            }
+        }
+
+        margin.start = start;
+        margin.length = i - start;
+        margin.bulletStart = bulletStart;
+        margin.bulletEnd = bulletEnd;
+        margin.width = col;
+        margin.comment = foundPrefixes != 0;
+        return margin.length;
+    }
+
+    private boolean isBullet(char c)
+    {
+        if (c < 64) {
+            return ((bulletChars0 >>> c) & 1) != 0;
+        }
+        if (c < 128) {
+            return ((bulletChars1 >>> (c - 64)) & 1) != 0;
+        }
+        return bullets.indexOf(c) >= 0;
+    }
+
+    /**
+      Return the column that follows a character displayed at the specified column.
+    */
+
+    private int advance(int col, char c)
+    {
+        return c == '\t' ? (col / tabSize + 1) * tabSize : col + 1;
+    }
+
+    /**
+      Match an enumeration of the form {@code N)}, {@code (N)}, {@code NN)} or {@code (NN)}, where the N are all digits,
+      all lower case letters, or all upper case letters.
+
+      @return the end of the enumeration, or -1 if the text at {@code start} is not an enumeration.
+    */
+
+    private static int enumerationEnd(@NotNull CharSequence text, int start, int end)
+    {
+        int i = start;
+        if (i < end && text.charAt(i) == '(') {
+            i++;
+        }
+        if (i >= end) {
+            return -1;
+        }
+        int kind = enumerationKind(text.charAt(i));
+        if (kind == 0) {
+            return -1;
+        }
+        i++;
+        if (i < end && text.charAt(i) == ')') {
+            return i + 1;
+        }
+        if (i + 1 < end && enumerationKind(text.charAt(i)) == kind && text.charAt(i + 1) == ')') {
+            return i + 2;
+        }
+        return -1;
+    }
+
+    private static int enumerationKind(char c)
+    {
+        if (c >= '0' && c <= '9') {
+            return 1;
+        }
+        if (c >= 'a' && c <= 'z') {
+            return 2;
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return 3;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,111 @@
+package com.github.cbfiddle.autoformattext2.engine;
+
+import java.util.Arrays;
+
+/**
+  Maps offsets in the source text of a reformatted paragraph to offsets in the reformatted text.
+  <p>
+  The map is built by {@link ParagraphWrapper} while it emits text. It records the segments of the source text that
+  were copied unchanged to the output (the margin of the first line, the words, and the spaces between words that
+  did not change), as a compact array of (source offset, target offset, length) triples in source order. Everything
+  between two segments is text that was replaced: line breaks, margins and white space.
+*/
+
+public final class OffsetMap
+{
+    private int[] segments = new int[3 * 16];
+    private int size;
+    private int targetStart;
+    private int targetEnd;
+
+    /**
+      Clear the map.
+      @param targetStart The target offset at which the reformatted text begins.
+    */
+
+    public void reset(int targetStart)
+    {
+        this.size = 0;
+        this.targetStart = targetStart;
+        this.targetEnd = targetStart;
+    }
+
+    /**
+      Record that the specified source text was copied unchanged to the specified target offset. Segments must be
+      added in increasing source order. A segment that continues the previous segment in both the source and the
+      target is merged with it.
+    */
+
+    public void add(int sourceOffset, int targetOffset, int length)
+    {
+        if (size > 0) {
+            int last = 3 * (size - 1);
+            if (segments[last] + segments[last + 2] == sourceOffset && segments[last + 1] + segments[last + 2] == targetOffset) {
+                segments[last + 2] += length;
+                targetEnd = targetOffset + length;
+                return;
+            }
+        }
+        if (3 * size == segments.length) {
+            segments = Arrays.copyOf(segments, segments.length * 2);
+        }
+        int i = 3 * size++;
+        segments[i] = sourceOffset;
+        segments[i + 1] = targetOffset;
+        segments[i + 2] = length;
+        targetEnd = targetOffset + length;
+    }
+
+    public int getSegmentCount()
+    {
+        return size;
+    }
+
+    public int getSourceOffset(int segment)
+    {
+        return segments[3 * segment];
+    }
+
+    public int getTargetOffset(int segment)
+    {
+        return segments[3 * segment + 1];
+    }
+
+    public int getLength(int segment)
+    {
+        return segments[3 * segment + 2];
+    }
+
+    /**
+      Return the target offset corresponding to a source offset. An offset within (or at either end of) a copied
+      segment moves with the segment. An offset in replaced text moves to the start of the following segment, or to
+      the end of the last segment if there is no following segment.
+    */
+
+    public int map(int sourceOffset)
+    {
+        // Find the last segment that starts at or before the offset
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (segments[3 * mid] <= sourceOffset) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        int segment = low - 1;
+        if (segment >= 0) {
+            int i = 3 * segment;
+            if (sourceOffset <= segments[i] + segments[i + 2]) {
+                return segments[i + 1] + sourceOffset - segments[i];
+            }
+        }
+        if (segment + 1 < size) {
+            return segments[3 * (segment + 1) + 1];
+        }
+        return size > 0 ? targetEnd : targetStart;
+    }
+}
@@ -0,0 +1,199 @@
+package com.github.cbfiddle.autoformattext2.engine;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+  Identifies paragraphs of a text. A paragraph is a sequence of non-empty lines with the same left margin (as it
+  would appear on a continuation line). A line with bullet text starts a new paragraph, and a line that contains only
+  its margin ends one.
+  <p>
+  The finder reads the character sequence and line index in place.
+*/
+
+public final class ParagraphFinder
+{
+    private final CharSequence text;
+    private final LineIndex lines;
+    private final MarginRecognizer marginRecognizer;
+    private @NotNull CancellationCheck cancellationCheck = CancellationCheck.NONE;
+
+    // Scratch state
+    private final Margin currentMargin = new Margin();
+    private final Margin lineMargin = new Margin();
+
+    public ParagraphFinder(@NotNull CharSequence text, @NotNull LineIndex lines, @NotNull MarginRecognizer marginRecognizer)
+    {
+        this.text = text;
+        this.lines = lines;
+        this.marginRecognizer = marginRecognizer;
+    }
+
+    /**
+      Specify a check that is called once for each line scanned.
+    */
+
+    public void setCancellationCheck(@NotNull CancellationCheck cancellationCheck)
+    {
+        this.cancellationCheck = cancellationCheck;
+    }
+
+    public @NotNull CharSequence getText()
+    {
+        return text;
+    }
+
+    /**
+      Return true if the specified line has no characters.
+    */
+
+    public boolean isEmptyLine(int line)
+    {
+        return lines.getLineStartOffset(line) == lines.getLineEndOffset(line);
+    }
+
+    /**
+      Return true if the specified line contains nothing but its margin and white space.
+    */
+
+    public boolean isBlankLine(int line)
+    {
+        int lineStart = lines.getLineStartOffset(line);
+        int lineEnd = lines.getLineEndOffset(line);
+        marginRecognizer.recognize(text, lineStart, lineEnd, lineMargin);
+        return isBlank(text, lineStart + lineMargin.length, lineEnd);
+    }
+
+    /**
+      Return true if the margin of the specified line contains a comment token.
+    */
+
+    public boolean isCommentLine(int line)
+    {
+        marginRecognizer.recognize(text, lines.getLineStartOffset(line), lines.getLineEndOffset(line), lineMargin);
+        return lineMargin.comment;
+    }
+
+    /**
+      Return true if the specified oracle places the first and last characters of the specified line, other than
+      spaces and tabs, in a comment. A line that starts or ends with code is not a comment line, even if it contains a
+      comment.
+    */
+
+    public boolean isCommentLine(int line, @NotNull CommentOracle commentOracle)
+    {
+        int start = lines.getLineStartOffset(line);
+        int end = lines.getLineEndOffset(line);
+        while (start < end && (text.charAt(start) == ' ' || text.charAt(start) == '\t')) {
+            start++;
+        }
+        while (end > start && (text.charAt(end - 1) == ' ' || text.charAt(end - 1) == '\t')) {
+            end--;
+        }
+        return start < end && commentOracle.isComment(start) && commentOracle.isComment(end - 1);
+    }
+
+    /**
+      Return the first line of the paragraph containing the specified (non-empty) line.
+    */
+
+    public int findStartLine(int line)
+    {
+        return findStartLine(line, 0);
+    }
+
+    /**
+      Return the first line of the paragraph containing the specified (non-empty) line, or the specified first line
+      if the paragraph starts before it. Lines before the first line are not scanned.
+    */
+
+    public int findStartLine(int line, int firstLine)
+    {
+        recognizeCurrentMargin(line);
+
+        while (line > firstLine) {
+            cancellationCheck.checkCanceled();
+            int lineStart = lines.getLineStartOffset(line);
+            int lineEnd = lines.getLineEndOffset(line);
+            marginRecognizer.recognize(text, lineStart, lineEnd, lineMargin);
+            if (!lineMargin.sameText(text, true, currentMargin, text, false)) {
+                // This is a "first line", don't go further up
+                break;
+            }
+            int newLineStart = lines.getLineStartOffset(line - 1);
+            int newLineEnd = lines.getLineEndOffset(line - 1);
+            if (newLineStart == newLineEnd) {
+                break;
+            }
+            marginRecognizer.recognize(text, newLineStart, newLineEnd, lineMargin);
+            if (!lineMargin.sameText(text, false, currentMargin, text, false)) {
+                break;
+            }
+            if (isBlank(text, newLineStart + lineMargin.length, newLineEnd)) {
+                break;
+            }
+            line--;
+        }
+        return line;
+    }
+
+    /**
+      Return the last line of the paragraph containing the specified (non-empty) line.
+    */
+
+    public int findEndLine(int line)
+    {
+        return findEndLine(line, lines.getLineCount() - 1);
+    }
+
+    /**
+      Return the last line of the paragraph containing the specified (non-empty) line, or the specified last line if
+      the paragraph ends after it. Lines after the last line are not scanned.
+    */
+
+    public int findEndLine(int line, int lastLine)
+    {
+        recognizeCurrentMargin(line);
+
+        while (line < lastLine) {
+            cancellationCheck.checkCanceled();
+            int newLineStart = lines.getLineStartOffset(line + 1);
+            int newLineEnd = lines.getLineEndOffset(line + 1);
+            if (newLineStart == newLineEnd) {
+                break;
+            }
+            marginRecognizer.recognize(text, newLineStart, newLineEnd, lineMargin);
+            if (lineMargin.hasBullet() || !lineMargin.sameText(text, false, currentMargin, text, false)) {
+                break;
+            }
+            if (isBlank(text, newLineStart + lineMargin.length, newLineEnd)) {
+                break;
+            }
+            line++;
+        }
+        return line;
+    }
+
+    /**
+      Identify the margin of the line from which a paragraph is searched. Margins are compared as they would appear
+      on a continuation line, except where noted.
+    */
+
+    private void recognizeCurrentMargin(int line)
+    {
+        marginRecognizer.recognize(text, lines.getLineStartOffset(line), lines.getLineEndOffset(line), currentMargin);
+    }
+
+    /**
+      Return true if the specified range of the text contains only white space.
+    */
+
+    public static boolean isBlank(@NotNull CharSequence text, int start, int end)
+    {
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,311 @@
+package com.github.cbfiddle.autoformattext2.engine;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+  An index of the paragraphs of a text, using the same rules as {@link ParagraphFinder}, that can be updated as the
+  text is edited.
+  <p>
+  For each line, the index records its margin class: the identity of its margin text as it appears on a first line and
+  as it appears on a continuation line, and whether the line is empty, blank, or has bullet text. Whether two adjacent
+  lines belong to the same paragraph depends only on the classes of those two lines, so the paragraph boundaries are
+  kept as two sorted arrays: the lines at which an upward scan stops and the lines at which a downward scan stops.
+  Finding the paragraph containing a line is then a binary search in each array. An edit is applied by recomputing
+  the classes of the edited lines and the boundaries next to them; the rest of the index is shifted, not recomputed.
+  <p>
+  The index is not thread safe. Updates must not run concurrently with lookups.
+*/
+
+public final class ParagraphIndex
+{
+    private static final int EMPTY = 1;
+    private static final int BLANK = 2;
+    private static final int BULLET = 4;
+
+    private final MarginRecognizer marginRecognizer;
+
+    // Margin texts are identified by small integers, so that each line class is three ints
+    private final Map<String,Integer> marginIds = new HashMap<>();
+
+    private int lineCount;
+    private int[] firstMarginIds;
+    private int[] continuationMarginIds;
+    private int[] flags;
+
+    // Lines that start a paragraph and lines that end a paragraph
+    private final Boundaries starts = new Boundaries();
+    private final Boundaries ends = new Boundaries();
+
+    // Scratch state
+    private final Margin margin = new Margin();
+
+    public ParagraphIndex(@NotNull MarginRecognizer marginRecognizer, @NotNull CharSequence text, @NotNull LineIndex lines)
+    {
+        this.marginRecognizer = marginRecognizer;
+        rebuild(text, lines);
+    }
+
+    public @NotNull MarginRecognizer getMarginRecognizer()
+    {
+        return marginRecognizer;
+    }
+
+    public int getLineCount()
+    {
+        return lineCount;
+    }
+
+    /**
+      Return true if the specified line is empty.
+    */
+
+    public boolean isEmptyLine(int line)
+    {
+        return (flags[line] & EMPTY) != 0;
+    }
+
+    /**
+      Return true if the specified line is blank: it contains nothing but a margin and white space.
+    */
+
+    public boolean isBlankLine(int line)
+    {
+        return (flags[line] & BLANK) != 0;
+    }
+
+    /**
+      Return the first line of the paragraph containing the specified (non-empty) line.
+    */
+
+    public int findStartLine(int line)
+    {
+        return starts.floor(line);
+    }
+
+    /**
+      Return the last line of the paragraph containing the specified (non-empty) line.
+    */
+
+    public int findEndLine(int line)
+    {
+        return ends.ceiling(line);
+    }
+
+    /**
+      Index the entire text.
+    */
+
+    public void rebuild(@NotNull CharSequence text, @NotNull LineIndex lines)
+    {
+        lineCount = lines.getLineCount();
+        firstMarginIds = new int[lineCount];
+        continuationMarginIds = new int[lineCount];
+        flags = new int[lineCount];
+        for (int line = 0; line < lineCount; line++) {
+            classify(text, lines, line);
+        }
+        starts.clear();
+        ends.clear();
+        for (int line = 0; line < lineCount; line++) {
+            if (isStart(line)) {
+                starts.add(line);
+            }
+            if (isEnd(line)) {
+                ends.add(line);
+            }
+        }
+    }
+
+    /**
+      Update the index after an edit that replaced the lines {@code startLine} to {@code oldEndLine} (inclusive) of
+      the previous text with the lines {@code startLine} to {@code newEndLine} of the specified text.
+    */
+
+    public void update(@NotNull CharSequence text, @NotNull LineIndex lines, int startLine, int oldEndLine, int newEndLine)
+    {
+        int delta = newEndLine - oldEndLine;
+        int oldLineCount = lineCount;
+        int newLineCount = lines.getLineCount();
+        if (newLineCount != oldLineCount + delta || startLine > oldEndLine || oldEndLine >= oldLineCount) {
+            // The edit does not match the index, which should not happen
+            rebuild(text, lines);
+            return;
+        }
+
+        // Shift the classes of the lines that follow the edit, then classify the edited lines
+        if (delta != 0) {
+            if (newLineCount > firstMarginIds.length) {
+                int capacity = Math.max(newLineCount, firstMarginIds.length + (firstMarginIds.length >> 1));
+                firstMarginIds = Arrays.copyOf(firstMarginIds, capacity);
+                continuationMarginIds = Arrays.copyOf(continuationMarginIds, capacity);
+                flags = Arrays.copyOf(flags, capacity);
+            }
+            int tail = oldLineCount - oldEndLine - 1;
+            System.arraycopy(firstMarginIds, oldEndLine + 1, firstMarginIds, newEndLine + 1, tail);
+            System.arraycopy(continuationMarginIds, oldEndLine + 1, continuationMarginIds, newEndLine + 1, tail);
+            System.arraycopy(flags, oldEndLine + 1, flags, newEndLine + 1, tail);
+        }
+        lineCount = newLineCount;
+        for (int line = startLine; line <= newEndLine; line++) {
+            classify(text, lines, line);
+        }
+
+        // Whether a line starts a paragraph depends on the line and the one before it; whether it ends a paragraph
+        // depends on the line and the one after it
+        starts.replace(startLine, Math.min(oldEndLine + 1, oldLineCount - 1), delta, this, true);
+        ends.replace(Math.max(startLine - 1, 0), oldEndLine, delta, this, false);
+    }
+
+    private void classify(@NotNull CharSequence text, @NotNull LineIndex lines, int line)
+    {
+        int lineStart = lines.getLineStartOffset(line);
+        int lineEnd = lines.getLineEndOffset(line);
+        int lineFlags = 0;
+        if (lineStart == lineEnd) {
+            lineFlags |= EMPTY;
+        }
+        int marginLength = marginRecognizer.recognize(text, lineStart, lineEnd, margin);
+        if (ParagraphFinder.isBlank(text, lineStart + marginLength, lineEnd)) {
+            lineFlags |= BLANK;
+        }
+        int continuationId = marginId(margin.getText(text, false));
+        int firstId = continuationId;
+        if (margin.hasBullet()) {
+            lineFlags |= BULLET;
+            firstId = marginId(margin.getText(text, true));
+        }
+        firstMarginIds[line] = firstId;
+        continuationMarginIds[line] = continuationId;
+        flags[line] = lineFlags;
+    }
+
+    private int marginId(@NotNull String marginText)
+    {
+        return marginIds.computeIfAbsent(marginText, key -> marginIds.size());
+    }
+
+    /**
+      Return true if an upward scan from the specified line stops at that line.
+    */
+
+    private boolean isStart(int line)
+    {
+        if (line == 0) {
+            return true;
+        }
+        int previous = line - 1;
+        return firstMarginIds[line] != continuationMarginIds[line]
+          || (flags[previous] & (EMPTY | BLANK)) != 0
+          || continuationMarginIds[previous] != continuationMarginIds[line];
+    }
+
+    /**
+      Return true if a downward scan from the specified line stops at that line.
+    */
+
+    private boolean isEnd(int line)
+    {
+        if (line == lineCount - 1) {
+            return true;
+        }
+        int next = line + 1;
+        return (flags[next] & (EMPTY | BLANK | BULLET)) != 0
+          || continuationMarginIds[next] != continuationMarginIds[line];
+    }
+
+    /**
+      A sorted set of line numbers.
+    */
+
+    private static final class Boundaries
+    {
+        private int[] lines = new int[16];
+        private int count;
+
+        void clear()
+        {
+            count = 0;
+        }
+
+        void add(int line)
+        {
+            if (count == lines.length) {
+                lines = Arrays.copyOf(lines, 2 * count);
+            }
+            lines[count++] = line;
+        }
+
+        /**
+          Return the greatest line in the set that is not greater than the specified line.
+        */
+
+        int floor(int line)
+        {
+            int index = lowerBound(line + 1) - 1;
+            return index >= 0 ? lines[index] : 0;
+        }
+
+        /**
+          Return the least line in the set that is not less than the specified line.
+        */
+
+        int ceiling(int line)
+        {
+            int index = lowerBound(line);
+            return index < count ? lines[index] : line;
+        }
+
+        /**
+          Replace the lines in the range {@code from} to {@code oldTo} (inclusive) with the lines in the range
+          {@code from} to {@code oldTo + delta} that now belong to the set, and move the lines after the range by
+          {@code delta}.
+        */
+
+        void replace(int from, int oldTo, int delta, @NotNull ParagraphIndex index, boolean starts)
+        {
+            int newTo = Math.min(oldTo + delta, index.lineCount - 1);
+            int removeStart = lowerBound(from);
+            int removeEnd = lowerBound(oldTo + 1);
+
+            int added = 0;
+            int[] addedLines = new int[Math.max(newTo - from + 1, 0)];
+            for (int line = from; line <= newTo; line++) {
+                if (starts ? index.isStart(line) : index.isEnd(line)) {
+                    addedLines[added++] = line;
+                }
+            }
+
+            int newCount = count - (removeEnd - removeStart) + added;
+            if (newCount > lines.length) {
+                lines = Arrays.copyOf(lines, Math.max(newCount, 2 * lines.length));
+            }
+            System.arraycopy(lines, removeEnd, lines, removeStart + added, count - removeEnd);
+            System.arraycopy(addedLines, 0, lines, removeStart, added);
+            count = newCount;
+            if (delta != 0) {
+                for (int i = removeStart + added; i < count; i++) {
+                    lines[i] += delta;
+                }
+            }
+        }
+
+        private int lowerBound(int line)
+        {
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (lines[middle] < line) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
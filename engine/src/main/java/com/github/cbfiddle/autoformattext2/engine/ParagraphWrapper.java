@@ -0,0 +1,784 @@
+package com.github.cbfiddle.autoformattext2.engine;
+
+import java.util.Arrays;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+  Reformats a paragraph of text so that its width does not exceed a specified width.
+  <p>
+  The wrapper streams over the source text: words are located by a cursor over the source character sequence and
+  appended directly to the output buffer. No list of words is built, and the running time is linear in the size of
+  the paragraph. Words are measured in display columns (see {@link DisplayWidth}), so that wide and combining
+  characters are allowed for, or by another {@link TextMeasure}, such as the widths of the glyphs of a font.
+  Optionally, the wrapper records an {@link OffsetMap} that relates source offsets to offsets in the reformatted text.
+  <p>
+  A paragraph that is already in its reformatted form can be detected without building the reformatted text: the
+  same algorithm runs, but its output is compared with the source as it is produced, and stops at the first
+  difference (see {@link #isWrapped}). Paragraphs found to be unchanged may be remembered in a
+  {@link WrappedBlockCache}, so that checking them again costs one pass to hash their text and one to compare it.
+  <p>
+  Optionally, a word that does not fit on a line is hyphenated (see {@link Hyphenator}): as much of it as fits is
+  placed on the line, followed by a hyphen, and the rest is placed on the next line as a word of its own. A hyphen at
+  the end of a source line is always kept, and the words on either side of it are placed separately, as it cannot be
+  told apart from a hyphen that is part of the word, or one that stands for a word left out ("pre- and
+  post-conditions"). To keep hyphenated text unchanged when it is wrapped again, a word that ends with a hyphen, as
+  each part of a hyphenated word but the last does, is never hyphenated, and nothing that could be part of a
+  hyphenated word is placed on a line after it.
+  <p>
+  By default, lines are filled greedily. Balanced wrapping instead chooses the line breaks that make the lines of the
+  paragraph as even as possible (see {@link BalancedLineBreaker}); it is used for paragraphs of up to a specified
+  number of words, beyond which the wrapper falls back to greedy wrapping.
+  <p>
+  After an edit, the lines that follow it can be rewrapped greedily, stopping as soon as the line breaks agree with
+  the source again (see {@link #rewrap}).
+  <p>
+  A wrapper keeps scratch state, so an instance must not be used by several threads at once.
+*/
+
+public final class ParagraphWrapper
+{
+    private final MarginRecognizer marginRecognizer;
+    private final int width;
+
+    private @NotNull CancellationCheck cancellationCheck = CancellationCheck.NONE;
+    private @NotNull TextMeasure measure = TextMeasure.COLUMNS;
+    private int balancedWordLimit;
+    private @Nullable BalancedLineBreaker lineBreaker;
+    private @Nullable WrapStatistics statistics;
+    private @Nullable WrappedBlockCache wrappedBlockCache;
+    private @Nullable Hyphenator hyphenator;
+    private WrappedBlockCache.Settings settings;
+
+    // Scratch state, reused for each line
+    private final Margin lineMargin = new Margin();
+
+    // The output of the current paragraph: appended to a buffer, or, if there is no buffer, compared with the range
+    // of the source text ending at compareEnd
+    private @Nullable StringBuilder out;
+    private @Nullable CharSequence compareText;
+    private int compareOffset;
+    private int compareEnd;
+    private boolean mismatch;
+
+    // The current word, when it is hyphenated: its text, the source offset of each character, and the hyphenation
+    // points of the part of it from hyphenPointsStart
+    private final StringBuilder hyphenWord = new StringBuilder();
+    private int[] hyphenSources = new int[64];
+    private byte[] hyphenPoints = new byte[64];
+    private int hyphenPointsStart;
+
+    // The output of rewrap, allocated on first use
+    private @Nullable StringBuilder rewrapBuffer;
+    private @Nullable OffsetMap rewrapOffsetMap;
+
+    public ParagraphWrapper(@NotNull MarginRecognizer marginRecognizer, int width)
+    {
+        this.marginRecognizer = marginRecognizer;
+        this.width = width;
+        updateSettings();
+    }
+
+    /**
+      Use balanced wrapping for paragraphs of up to the specified number of words. If the limit is zero, paragraphs
+      are always wrapped greedily.
+    */
+
+    public void setBalancedWordLimit(int balancedWordLimit)
+    {
+        this.balancedWordLimit = Math.max(balancedWordLimit, 0);
+        if (balancedWordLimit > 0 && lineBreaker == null) {
+            lineBreaker = new BalancedLineBreaker();
+        }
+        updateSettings();
+    }
+
+    /**
+      Measure words and margins with the specified measure. The line width remains a number of columns, each the width
+      of a space.
+    */
+
+    public void setTextMeasure(@NotNull TextMeasure measure)
+    {
+        this.measure = measure;
+        updateSettings();
+    }
+
+    /**
+      Hyphenate words that do not fit on a line using the specified hyphenator, or never hyphenate them if null. Words
+      are not hyphenated in paragraphs that are wrapped in balanced mode.
+    */
+
+    public void setHyphenator(@Nullable Hyphenator hyphenator)
+    {
+        this.hyphenator = hyphenator;
+        updateSettings();
+    }
+
+    /**
+      Specify a check that is called once for each source line.
+    */
+
+    public void setCancellationCheck(@NotNull CancellationCheck cancellationCheck)
+    {
+        this.cancellationCheck = cancellationCheck;
+    }
+
+    /**
+      Accumulate counts and timings into the specified statistics, or stop collecting them if null.
+    */
+
+    public void setStatistics(@Nullable WrapStatistics statistics)
+    {
+        this.statistics = statistics;
+    }
+
+    /**
+      Remember the paragraphs found by {@link #isWrapped} to be unchanged in the specified cache, which may be shared by
+      wrappers with different settings.
+    */
+
+    public void setWrappedBlockCache(@Nullable WrappedBlockCache wrappedBlockCache)
+    {
+        this.wrappedBlockCache = wrappedBlockCache;
+    }
+
+    /**
+      Return true if reformatting the text in the range {@code start} (inclusive) to {@code end} (exclusive) of the
+      specified text would not change it. No reformatted text is built, and the check stops at the first difference.
+    */
+
+    public boolean isWrapped(@NotNull CharSequence text, int start, int end)
+    {
+        long key = 0;
+        if (wrappedBlockCache != null) {
+            key = WrappedBlockCache.hash(text, start, end, settings);
+            if (wrappedBlockCache.contains(key, settings, text, start, end)) {
+                return true;
+            }
+        }
+
+        compareText = text;
+        compareOffset = start;
+        compareEnd = end;
+        mismatch = false;
+        try {
+            format(text, start, end, null);
+        } finally {
+            compareText = null;
+        }
+        boolean wrapped = !mismatch && compareOffset == end;
+
+        if (wrapped && wrappedBlockCache != null) {
+            wrappedBlockCache.add(key, settings, text, start, end);
+        }
+        return wrapped;
+    }
+
+    /**
+      Reformat the text in the range {@code start} (inclusive) to {@code end} (exclusive) of the specified text.
+    */
+
+    public @NotNull String wrap(@NotNull CharSequence text, int start, int end)
+    {
+        StringBuilder sb = new StringBuilder(estimateCapacity(end - start));
+        wrap(text, start, end, sb, null);
+        return sb.toString();
+    }
+
+    /**
+      Reformat the text in the range {@code start} (inclusive) to {@code end} (exclusive) of the specified text,
+      appending the result to the specified buffer. If an offset map is specified, it is reset and records the
+      location in the buffer of the text copied from the source.
+      <p>
+      The first line of formatted text may be given a different left margin than the remaining lines. In particular,
+      lines other than the first line will not contain bullet text. If the input text has more than one line, the left
+      margin of the second line is used to determine the left margin of lines other than the first line. Otherwise,
+      the left margin of the first line is used. Empty lines are ignored.
+    */
+
+    public void wrap(@NotNull CharSequence text, int start, int end, @NotNull StringBuilder sb, @Nullable OffsetMap offsetMap)
+    {
+        out = sb;
+        mismatch = false;
+        try {
+            format(text, start, end, offsetMap);
+        } finally {
+            out = null;
+        }
+    }
+
+    /**
+      Rewrap greedily the lines of a paragraph that follow an edit, adding the edits that change them. The text in
+      the range {@code start} (inclusive) to {@code end} (exclusive) is the paragraph, which is assumed to have been
+      wrapped by this wrapper before the edit.
+      <p>
+      Rewrapping starts at the line that begins at {@code lineStart}, which keeps its margin. It should be the line
+      before the edited line, as an edit that shortens a line may make room for its first word on the line before.
+      Rewrapping stops at the first line break after the line in which the edit ended (at {@code editEnd}) where the
+      source already breaks the line before the same word, with the same margin: the lines that follow are then
+      unchanged.
+      The cost therefore depends on the number of lines whose breaks move, not on the size of the paragraph.
+      <p>
+      Balanced wrapping is not used, as any line break of a balanced paragraph may depend on the edit. With hyphenation,
+      the whole paragraph is rewrapped, as only the full algorithm hyphenates words.
+    */
+
+    public void rewrap(@NotNull CharSequence text, int start, int end, int lineStart, int editEnd, @NotNull TextEdits edits)
+    {
+        if (rewrapBuffer == null) {
+            rewrapBuffer = new StringBuilder();
+            rewrapOffsetMap = new OffsetMap();
+        }
+        StringBuilder sb = rewrapBuffer;
+        OffsetMap offsetMap = rewrapOffsetMap;
+        sb.setLength(0);
+        offsetMap.reset(0);
+
+        if (hyphenator != null) {
+            int savedBalancedWordLimit = balancedWordLimit;
+            balancedWordLimit = 0;
+            try {
+                wrap(text, start, end, sb, offsetMap);
+            } finally {
+                balancedWordLimit = savedBalancedWordLimit;
+            }
+            edits.addDifferences(text, start, end, sb, 0, sb.length(), offsetMap);
+            return;
+        }
+
+        int firstLineStart = skipLineSeparators(text, start, end);
+        if (firstLineStart == end) {
+            return;
+        }
+        int firstLineEnd = lineEnd(text, firstLineStart, end);
+        Margin firstLineMargin = new Margin();
+        recognizeMargin(text, firstLineStart, firstLineEnd, firstLineMargin);
+        Margin otherLinesMargin = firstLineMargin;
+        int secondLineStart = skipLineSeparators(text, firstLineEnd, end);
+        if (secondLineStart < end) {
+            otherLinesMargin = new Margin();
+            recognizeMargin(text, secondLineStart, lineEnd(text, secondLineStart, end), otherLinesMargin);
+        }
+        String secondLineMargin = otherLinesMargin.getText(text, false);
+        int otherLinesMarginWidth = measureMargin(secondLineMargin, 0, secondLineMargin.length(), otherLinesMargin.width);
+        int spaceWidth = measure.getSpaceWidth();
+        int maxWidth = width * spaceWidth;
+
+        int wordStart;
+        int currentLineWidth;
+        lineStart = Math.max(lineStart, firstLineStart);
+        if (lineStart == firstLineStart) {
+            wordStart = lineStart + firstLineMargin.length;
+            currentLineWidth = measureMargin(text, lineStart, wordStart, firstLineMargin.width);
+        } else {
+            wordStart = lineStart + recognizeMargin(text, lineStart, lineEnd(text, lineStart, end), lineMargin);
+            currentLineWidth = measureMargin(text, lineStart, wordStart, lineMargin.width);
+        }
+        int currentLineMarginWidth = currentLineWidth;
+
+        // The edited line may have become shorter, making room for words of the next line, so rewrapping cannot stop
+        // before the end of the edited line, even if the edit ended in its margin
+        int editLineEnd = lineEnd(text, Math.max(Math.min(editEnd, end), start), end);
+
+        int replaceStart = wordStart;
+        int previousWordEnd = -1;
+        boolean sourceBreak = false;
+        scan:
+        while (true) {
+            cancellationCheck.checkCanceled();
+            int lineEnd = lineEnd(text, lineStart, end);
+
+            while (true) {
+                wordStart = skipWhitespace(text, wordStart, lineEnd);
+                if (wordStart == lineEnd) {
+                    break;
+                }
+                int wordEnd = wordEnd(text, wordStart, lineEnd);
+                int wordWidth = measure.getWidth(text, wordStart, wordEnd);
+
+                if (currentLineWidth > currentLineMarginWidth) {
+                    if (currentLineWidth + spaceWidth + wordWidth <= maxWidth) {
+                        if (previousWordEnd == wordStart - 1 && text.charAt(previousWordEnd) == ' ') {
+                            offsetMap.add(previousWordEnd, sb.length(), 1);
+                        }
+                        sb.append(' ');
+                        currentLineWidth += spaceWidth;
+                    } else {
+                        if (sourceBreak && wordStart > editLineEnd
+                              && isSeparator(text, previousWordEnd, wordStart, secondLineMargin)) {
+                            // The source breaks the line here too, so the rest of the paragraph is unchanged
+                            break scan;
+                        }
+                        sb.append('\n').append(secondLineMargin);
+                        currentLineWidth = otherLinesMarginWidth;
+                        currentLineMarginWidth = otherLinesMarginWidth;
+                    }
+                }
+                offsetMap.add(wordStart, sb.length(), wordEnd - wordStart);
+                sb.append(text, wordStart, wordEnd);
+                currentLineWidth += wordWidth;
+                previousWordEnd = wordEnd;
+                wordStart = wordEnd;
+                sourceBreak = false;
+            }
+
+            lineStart = skipLineSeparators(text, lineEnd, end);
+            if (lineStart == end) {
+                break;
+            }
+            wordStart = lineStart + recognizeMargin(text, lineStart, lineEnd(text, lineStart, end), lineMargin);
+            sourceBreak = true;
+        }
+
+        if (previousWordEnd >= 0) {
+            edits.addDifferences(text, replaceStart, previousWordEnd, sb, 0, sb.length(), offsetMap);
+        }
+    }
+
+    /**
+      Return true if the text between two words is a line break followed by the specified margin.
+    */
+
+    private static boolean isSeparator(@NotNull CharSequence text, int start, int end, @NotNull String margin)
+    {
+        if (end - start != margin.length() + 1 || text.charAt(start) != '\n') {
+            return false;
+        }
+        for (int i = 0; i < margin.length(); i++) {
+            if (text.charAt(start + 1 + i) != margin.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+      Reformat a paragraph, sending the output to the buffer or the comparison. The offset map is only used with a
+      buffer.
+    */
+
+    private void format(@NotNull CharSequence text, int start, int end, @Nullable OffsetMap offsetMap)
+    {
+        StringBuilder sb = out;
+        if (offsetMap != null) {
+            offsetMap.reset(sb.length());
+        }
+
+        int firstLineStart = skipLineSeparators(text, start, end);
+        if (firstLineStart < end) {
+            int firstLineEnd = lineEnd(text, firstLineStart, end);
+            Margin firstLineMargin = new Margin();
+            recognizeMargin(text, firstLineStart, firstLineEnd, firstLineMargin);
+
+            Margin otherLinesMargin = firstLineMargin;
+            int secondLineStart = skipLineSeparators(text, firstLineEnd, end);
+            if (secondLineStart < end) {
+                otherLinesMargin = new Margin();
+                recognizeMargin(text, secondLineStart, lineEnd(text, secondLineStart, end), otherLinesMargin);
+            }
+            String secondLineMargin = otherLinesMargin.getText(text, false);
+            int otherLinesMarginWidth = measureMargin(secondLineMargin, 0, secondLineMargin.length(), otherLinesMargin.width);
+            int firstLineMarginWidth = measureMargin(text, firstLineStart, firstLineStart + firstLineMargin.length, firstLineMargin.width);
+            int spaceWidth = measure.getSpaceWidth();
+            int maxWidth = width * spaceWidth;
+            int hyphenWidth = hyphenator != null ? measure.getWidth("-", 0, 1) : 0;
+
+            if (offsetMap != null && firstLineMargin.length > 0) {
+                offsetMap.add(firstLineStart, sb.length(), firstLineMargin.length);
+            }
+            emit(text, firstLineStart, firstLineStart + firstLineMargin.length);
+
+            // In balanced mode the line breaks are chosen in advance; otherwise each word goes on the current line if
+            // it fits
+            BalancedLineBreaker breaker = null;
+            if (lineBreaker != null && balancedWordLimit > 0
+                  && collectWords(text, firstLineStart, firstLineStart + firstLineMargin.length, end)) {
+                breaker = lineBreaker;
+                breaker.breakLines(maxWidth - firstLineMarginWidth, maxWidth - otherLinesMarginWidth, spaceWidth);
+            }
+            boolean hyphenating = hyphenator != null && breaker == null;
+            int wordIndex = 0;
+
+            int currentLineWidth = firstLineMarginWidth;
+            int currentLineMarginWidth = firstLineMarginWidth;
+
+            int lineStart = firstLineStart;
+            int wordStart = firstLineStart + firstLineMargin.length;
+            int previousWordEnd = -1;
+            boolean afterHyphen = false;
+            int lineCount = 0;
+            while (true) {
+                cancellationCheck.checkCanceled();
+                lineCount++;
+                int lineEnd = lineEnd(text, lineStart, end);
+
+                while (true) {
+                    wordStart = skipWhitespace(text, wordStart, lineEnd);
+                    if (wordStart == lineEnd) {
+                        break;
+                    }
+                    int wordEnd = wordEnd(text, wordStart, lineEnd);
+                    int wordLength = wordEnd - wordStart;
+                    int wordWidth = measure.getWidth(text, wordStart, wordEnd);
+                    // A word that ends with a hyphen, as each part of a hyphenated word but the last does, is not
+                    // hyphenated again
+                    boolean trailingHyphen = hyphenating && endsWithHyphen(text, wordStart, wordEnd);
+                    boolean inBuffer = false;
+
+                    // Place the word, or, if it is hyphenated, its parts on successive lines
+                    int partStart = 0;
+                    while (true) {
+                        int breakPoint = wordLength;
+
+                        // A word at the beginning of a line is placed even if it is too long
+                        if (currentLineWidth > currentLineMarginWidth) {
+                            // After a word that ends with a hyphen, neither part of a word nor another word that
+                            // ends with a hyphen is placed on the line, so that the parts of a hyphenated word stay
+                            // on their own lines when the text is wrapped again
+                            boolean fits = breaker != null
+                              ? !breaker.isBreakBefore(wordIndex)
+                              : currentLineWidth + spaceWidth + wordWidth <= maxWidth && !(afterHyphen && trailingHyphen);
+                            if (!fits && hyphenating && !trailingHyphen && !afterHyphen) {
+                                if (!inBuffer) {
+                                    findHyphenationPoints(text, wordStart, wordEnd);
+                                    inBuffer = true;
+                                }
+                                breakPoint = findBreak(partStart, wordLength, maxWidth - currentLineWidth - spaceWidth, hyphenWidth);
+                            }
+                            if (fits || breakPoint < wordLength) {
+                                // Enough space to add the word, or part of it, to this line. A single space that
+                                // separated the words in the source is unchanged.
+                                if (offsetMap != null && previousWordEnd == wordStart - 1 && text.charAt(previousWordEnd) == ' ') {
+                                    offsetMap.add(previousWordEnd, sb.length(), 1);
+                                }
+                                emit(' ');
+                                currentLineWidth += spaceWidth;
+                            } else {
+                                // Not enough space, create new line
+                                emit('\n');
+                                emit(secondLineMargin, 0, secondLineMargin.length());
+                                currentLineWidth = otherLinesMarginWidth;
+                                currentLineMarginWidth = otherLinesMarginWidth;
+                            }
+                        }
+                        if (hyphenating && !trailingHyphen && breakPoint == wordLength && currentLineWidth + wordWidth > maxWidth) {
+                            // Too long for a line of its own
+                            if (!inBuffer) {
+                                findHyphenationPoints(text, wordStart, wordEnd);
+                                inBuffer = true;
+                            }
+                            breakPoint = findBreak(partStart, wordLength, maxWidth - currentLineWidth, hyphenWidth);
+                        }
+
+                        if (inBuffer) {
+                            emitWordPart(partStart, breakPoint, offsetMap);
+                        } else {
+                            if (offsetMap != null) {
+                                offsetMap.add(wordStart, sb.length(), wordLength);
+                            }
+                            emit(text, wordStart, wordEnd);
+                        }
+                        if (breakPoint == wordLength) {
+                            currentLineWidth += wordWidth;
+                            afterHyphen = trailingHyphen;
+                            break;
+                        }
+                        if (hyphenWord.charAt(breakPoint - 1) != '-') {
+                            emit('-');
+                        }
+                        emit('\n');
+                        emit(secondLineMargin, 0, secondLineMargin.length());
+                        currentLineWidth = otherLinesMarginWidth;
+                        currentLineMarginWidth = otherLinesMarginWidth;
+                        partStart = breakPoint;
+                        wordWidth = measure.getWidth(hyphenWord, partStart, wordLength);
+                        // The rest is hyphenated as a word of its own, as it will be when the text is wrapped again
+                        findHyphenationPoints(partStart);
+                    }
+                    previousWordEnd = wordEnd;
+                    wordStart = wordEnd;
+                    wordIndex++;
+                }
+
+                if (mismatch) {
+                    return;
+                }
+                lineStart = skipLineSeparators(text, lineEnd, end);
+                if (lineStart == end) {
+                    break;
+                }
+                wordStart = lineStart + recognizeMargin(text, lineStart, lineEnd(text, lineStart, end), lineMargin);
+            }
+
+            if (statistics != null) {
+                statistics.lines += lineCount;
+                statistics.words += wordIndex;
+            }
+        }
+        if (statistics != null) {
+            statistics.paragraphs++;
+            statistics.characters += end - start;
+        }
+
+        // Add final end-line if there was one originally
+        if (end > start && text.charAt(end - 1) == '\n') {
+            emit('\n');
+        }
+    }
+
+    private void emit(@NotNull CharSequence s, int from, int to)
+    {
+        if (out != null) {
+            out.append(s, from, to);
+            return;
+        }
+        int length = to - from;
+        if (mismatch || compareOffset + length > compareEnd) {
+            mismatch = true;
+            return;
+        }
+        if (s != compareText || from != compareOffset) {
+            for (int i = 0; i < length; i++) {
+                if (compareText.charAt(compareOffset + i) != s.charAt(from + i)) {
+                    mismatch = true;
+                    return;
+                }
+            }
+        }
+        // Otherwise the text is copied from where it already is, as most words are when nothing changes
+        compareOffset += length;
+    }
+
+    private void emit(char c)
+    {
+        if (out != null) {
+            out.append(c);
+        } else if (mismatch || compareOffset >= compareEnd || compareText.charAt(compareOffset) != c) {
+            mismatch = true;
+        } else {
+            compareOffset++;
+        }
+    }
+
+    private void updateSettings()
+    {
+        settings = new WrappedBlockCache.Settings(width, balancedWordLimit, marginRecognizer, measure, hyphenator);
+    }
+
+    private void appendToWord(@NotNull CharSequence text, int start, int end)
+    {
+        int length = hyphenWord.length();
+        hyphenWord.append(text, start, end);
+        if (hyphenSources.length < hyphenWord.length()) {
+            hyphenSources = Arrays.copyOf(hyphenSources, 2 * hyphenWord.length());
+        }
+        for (int i = start; i < end; i++) {
+            hyphenSources[length + i - start] = i;
+        }
+    }
+
+    /**
+      Copy the current word to the word buffer and find its hyphenation points.
+    */
+
+    private void findHyphenationPoints(@NotNull CharSequence text, int wordStart, int wordEnd)
+    {
+        hyphenWord.setLength(0);
+        appendToWord(text, wordStart, wordEnd);
+        findHyphenationPoints(0);
+    }
+
+    /**
+      Find the hyphenation points of the word in the word buffer from {@code from} to its end.
+    */
+
+    private void findHyphenationPoints(int from)
+    {
+        assert hyphenator != null;
+        int length = hyphenWord.length() - from;
+        if (hyphenPoints.length <= length) {
+            hyphenPoints = new byte[2 * length + 1];
+        }
+        hyphenator.hyphenate(hyphenWord, from, hyphenWord.length(), hyphenPoints);
+        hyphenPointsStart = from;
+    }
+
+    /**
+      Return the last point of the word in the word buffer, after {@code partStart} and before {@code wordLength},
+      where the word may be broken so that the part from {@code partStart}, followed by a hyphen if one is inserted,
+      is no wider than {@code available}. If there is no such point, return {@code wordLength}.
+      <p>
+      A hyphen is inserted where the hyphenator allows it before a lowercase letter. A word may also be broken after
+      a hyphen between two letters.
+    */
+
+    private int findBreak(int partStart, int wordLength, int available, int hyphenWidth)
+    {
+        StringBuilder word = hyphenWord;
+        for (int point = wordLength - 1; point > partStart; point--) {
+            boolean inserted = (hyphenPoints[point - hyphenPointsStart] & 1) != 0 && Character.isLowerCase(word.charAt(point));
+            if ((inserted || isHyphenBreak(point))
+                  && measure.getWidth(word, partStart, point) + (inserted ? hyphenWidth : 0) <= available) {
+                return point;
+            }
+        }
+        return wordLength;
+    }
+
+    private static boolean endsWithHyphen(@NotNull CharSequence text, int wordStart, int wordEnd)
+    {
+        return wordEnd - wordStart >= 2 && text.charAt(wordEnd - 1) == '-' && Character.isLetter(text.charAt(wordEnd - 2));
+    }
+
+    private boolean isHyphenBreak(int point)
+    {
+        StringBuilder word = hyphenWord;
+        return point >= 2 && word.charAt(point - 1) == '-' && Character.isLetter(word.charAt(point - 2))
+          && Character.isLetter(word.charAt(point));
+    }
+
+    /**
+      Emit the characters of the word in the word buffer from {@code from} to {@code to}.
+    */
+
+    private void emitWordPart(int from, int to, @Nullable OffsetMap offsetMap)
+    {
+        if (offsetMap != null) {
+            assert out != null;
+            // Map each run of characters that are adjacent in the source
+            int runStart = from;
+            for (int i = from + 1; i <= to; i++) {
+                if (i == to || hyphenSources[i] != hyphenSources[i - 1] + 1) {
+                    offsetMap.add(hyphenSources[runStart], out.length() + runStart - from, i - runStart);
+                    runStart = i;
+                }
+            }
+        }
+        emit(hyphenWord, from, to);
+    }
+
+    /**
+      Return the width of a margin in the units of the text measure. The recognizer has computed its width in columns,
+      which is used as is when the measure is columns. Otherwise the characters are measured one at a time, and a tab
+      advances to the next tab stop, as the editor does.
+    */
+
+    private int measureMargin(@NotNull CharSequence text, int start, int end, int columns)
+    {
+        if (measure == TextMeasure.COLUMNS) {
+            return columns;
+        }
+        int tabWidth = marginRecognizer.getTabSize() * measure.getSpaceWidth();
+        int width = 0;
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == '\t') {
+                width = (width / tabWidth + 1) * tabWidth;
+            } else {
+                width += measure.getWidth(text, i, i + 1);
+            }
+        }
+        return width;
+    }
+
+    private int recognizeMargin(@NotNull CharSequence text, int start, int end, @NotNull Margin margin)
+    {
+        if (statistics == null) {
+            return marginRecognizer.recognize(text, start, end, margin);
+        }
+        long startTime = System.nanoTime();
+        int length = marginRecognizer.recognize(text, start, end, margin);
+        statistics.marginNanos += System.nanoTime() - startTime;
+        return length;
+    }
+
+    /**
+      Give the line breaker the widths of the words of the paragraph, visiting the words exactly as the wrapping loop
+      does. The paragraph starts with the first word at {@code wordStart} on the line starting at {@code lineStart}.
+
+      @return false if the paragraph has more words than the balanced word limit.
+    */
+
+    private boolean collectWords(@NotNull CharSequence text, int lineStart, int wordStart, int end)
+    {
+        assert lineBreaker != null;
+        lineBreaker.clear();
+        while (true) {
+            cancellationCheck.checkCanceled();
+            int lineEnd = lineEnd(text, lineStart, end);
+            while (true) {
+                wordStart = skipWhitespace(text, wordStart, lineEnd);
+                if (wordStart == lineEnd) {
+                    break;
+                }
+                if (lineBreaker.getWordCount() == balancedWordLimit) {
+                    return false;
+                }
+                int wordEnd = wordEnd(text, wordStart, lineEnd);
+                lineBreaker.addWord(measure.getWidth(text, wordStart, wordEnd));
+                wordStart = wordEnd;
+            }
+            lineStart = skipLineSeparators(text, lineEnd, end);
+            if (lineStart == end) {
+                return true;
+            }
+            wordStart = lineStart + recognizeMargin(text, lineStart, lineEnd(text, lineStart, end), lineMargin);
+        }
+    }
+
+    /**
+      Estimate the size of the reformatted text, allowing for margins added by new line breaks.
+    */
+
+    private int estimateCapacity(int length)
+    {
+        return length + length / Math.max(width, 16) * 8 + 16;
+    }
+
+    private static boolean isLineSeparator(char c)
+    {
+        return c == '\n' || c == '\r';
+    }
+
+    /**
+      Return true if the character separates words. These are the default delimiters of {@code StringTokenizer}.
+    */
+
+    private static boolean isWhitespace(char c)
+    {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+    }
+
+    private static int skipLineSeparators(@NotNull CharSequence text, int i, int end)
+    {
+        while (i < end && isLineSeparator(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int lineEnd(@NotNull CharSequence text, int i, int end)
+    {
+        while (i < end && !isLineSeparator(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipWhitespace(@NotNull CharSequence text, int i, int end)
+    {
+        while (i < end && isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int wordEnd(@NotNull CharSequence text, int i, int end)
+    {
+        while (i < end && !isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+}
@@ -0,0 +1,139 @@
+package com.github.cbfiddle.autoformattext2.engine;
+
+import java.util.Arrays;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+  A trie of up to 64 strings, identified by their index, stored in primitive arrays. The children of a node form a
+  linked list. Matching reads each character of the text at most once, however many strings the trie holds.
+*/
+
+final class PrefixTrie
+{
+    static final int MAX_PREFIXES = 64;
+
+    private char[] labels = new char[16];
+    private int[] firstChild = new int[16];
+    private int[] nextSibling = new int[16];
+    private int[] prefixIds = new int[16];
+    private int nodeCount = 1;
+
+    private final String[] prefixes;
+    private final int[] prefixLengths;
+
+    // The ASCII characters that start some string, as a bit set, to quickly reject the common case
+    private long firstChars0;
+    private long firstChars1;
+
+    PrefixTrie(@NotNull String[] prefixes)
+    {
+        if (prefixes.length > MAX_PREFIXES) {
+            throw new IllegalArgumentException("Too many prefixes: " + prefixes.length);
+        }
+        firstChild[0] = -1;
+        nextSibling[0] = -1;
+        prefixIds[0] = -1;
+        this.prefixes = prefixes.clone();
+        prefixLengths = new int[prefixes.length];
+        for (int id = 0; id < prefixes.length; id++) {
+            add(prefixes[id], id);
+        }
+    }
+
+    @NotNull String getPrefix(int id)
+    {
+        return prefixes[id];
+    }
+
+    int getPrefixLength(int id)
+    {
+        return prefixLengths[id];
+    }
+
+    /**
+      Return the longest string in the trie that starts at {@code start} in the text, does not extend beyond
+      {@code end}, and whose bit is set in {@code allowed}.
+
+      @return the index of the string, or -1 if there is no such string.
+    */
+
+    int longestMatch(@NotNull CharSequence text, int start, int end, long allowed)
+    {
+        if (start >= end || allowed == 0) {
+            return -1;
+        }
+        char first = text.charAt(start);
+        if (first < 128 && ((first < 64 ? firstChars0 >>> first : firstChars1 >>> (first - 64)) & 1) == 0) {
+            return -1;
+        }
+
+        int match = -1;
+        int node = 0;
+        for (int i = start; i < end; i++) {
+            node = child(node, text.charAt(i));
+            if (node < 0) {
+                break;
+            }
+            int id = prefixIds[node];
+            if (id >= 0 && (allowed & (1L << id)) != 0) {
+                match = id;
+            }
+        }
+        return match;
+    }
+
+    private int child(int node, char c)
+    {
+        for (int child = firstChild[node]; child >= 0; child = nextSibling[child]) {
+            if (labels[child] == c) {
+                return child;
+            }
+        }
+        return -1;
+    }
+
+    private void add(@NotNull String prefix, int id)
+    {
+        if (prefix.isEmpty()) {
+            throw new IllegalArgumentException("Empty prefix");
+        }
+        char first = prefix.charAt(0);
+        if (first < 64) {
+            firstChars0 |= 1L << first;
+        } else if (first < 128) {
+            firstChars1 |= 1L << (first - 64);
+        }
+
+        int node = 0;
+        for (int i = 0; i < prefix.length(); i++) {
+            char c = prefix.charAt(i);
+            int child = child(node, c);
+            if (child < 0) {
+                child = newNode(c);
+                nextSibling[child] = firstChild[node];
+                firstChild[node] = child;
+            }
+            node = child;
+        }
+        prefixIds[node] = id;
+        prefixLengths[id] = prefix.length();
+    }
+
+    private int newNode(char label)
+    {
+        if (nodeCount == labels.length) {
+            int capacity = 2 * nodeCount;
+            labels = Arrays.copyOf(labels, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            nextSibling = Arrays.copyOf(nextSibling, capacity);
+            prefixIds = Arrays.copyOf(prefixIds, capacity);
+        }
+        int node = nodeCount++;
+        labels[node] = label;
+        firstChild[node] = -1;
+        nextSibling[node] = -1;
+        prefixIds[node] = -1;
+        return node;
+    }
+}
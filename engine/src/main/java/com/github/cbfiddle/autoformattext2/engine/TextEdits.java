@@ -0,0 +1,160 @@
+package com.github.cbfiddle.autoformattext2.engine;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+  A list of replacements of ranges of a source text, in increasing order of position. The ranges do not overlap, so
+  the edits can be applied to a document from last to first without adjusting offsets.
+*/
+
+public final class TextEdits
+{
+    private int[] ranges = new int[2 * 8];
+    private CharSequence[] replacements = new CharSequence[8];
+    private int size;
+
+    /**
+      Add an edit that replaces the range {@code start} (inclusive) to {@code end} (exclusive) of the source text.
+      The edit must follow all previously added edits.
+    */
+
+    public void add(int start, int end, @NotNull CharSequence replacement)
+    {
+        if (size == replacements.length) {
+            ranges = Arrays.copyOf(ranges, 4 * size);
+            replacements = Arrays.copyOf(replacements, 2 * size);
+        }
+        ranges[2 * size] = start;
+        ranges[2 * size + 1] = end;
+        replacements[size] = replacement;
+        size++;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    public int getStart(int edit)
+    {
+        return ranges[2 * edit];
+    }
+
+    public int getEnd(int edit)
+    {
+        return ranges[2 * edit + 1];
+    }
+
+    public @NotNull CharSequence getReplacement(int edit)
+    {
+        return replacements[edit];
+    }
+
+    /**
+      Return the offset in the result of applying the edits of an offset in the source text, such as the position of
+      a caret. An offset at the start of a replaced range stays before the replacement and an offset at its end stays
+      after it, so a caret keeps its place relative to the unchanged text around an edit. An offset within a replaced
+      range keeps its distance from the start of the range, up to the end of the replacement.
+    */
+
+    public int mapOffset(int offset)
+    {
+        int shift = 0;
+        for (int edit = 0; edit < size; edit++) {
+            int start = getStart(edit);
+            int end = getEnd(edit);
+            if (offset <= start) {
+                break;
+            }
+            int length = replacements[edit].length();
+            if (offset < end) {
+                return start + shift + Math.min(offset - start, length);
+            }
+            shift += length - (end - start);
+        }
+        return offset + shift;
+    }
+
+    /**
+      Write the result of applying the edits to the source text, without materializing the result.
+    */
+
+    public void writeTo(@NotNull CharSequence source, @NotNull Appendable out)
+      throws IOException
+    {
+        int position = 0;
+        for (int edit = 0; edit < size; edit++) {
+            out.append(source, position, getStart(edit));
+            out.append(replacements[edit]);
+            position = getEnd(edit);
+        }
+        out.append(source, position, source.length());
+    }
+
+    /**
+      Add the smallest set of edits that turn a range of the source text into its reformatted text. The offset map
+      produced by {@link ParagraphWrapper} identifies the text that was copied unchanged, so only the text between
+      copied segments (mostly white space, line breaks and margins) needs to be compared. Within each such gap, the
+      text common to the start and the end of the old and new versions is not replaced.
+
+      @param source The source text.
+      @param sourceStart The start of the reformatted range of the source text.
+      @param sourceEnd The end of the reformatted range of the source text.
+      @param target The text containing the reformatted text.
+      @param targetStart The start of the reformatted text in {@code target}.
+      @param targetEnd The end of the reformatted text in {@code target}.
+      @param offsetMap The offset map recorded while reformatting.
+    */
+
+    public void addDifferences(@NotNull CharSequence source,
+                               int sourceStart,
+                               int sourceEnd,
+                               @NotNull CharSequence target,
+                               int targetStart,
+                               int targetEnd,
+                               @NotNull OffsetMap offsetMap)
+    {
+        int s = sourceStart;
+        int t = targetStart;
+        int count = offsetMap.getSegmentCount();
+        for (int i = 0; i < count; i++) {
+            int segmentSource = offsetMap.getSourceOffset(i);
+            int segmentTarget = offsetMap.getTargetOffset(i);
+            addDifference(source, s, segmentSource, target, t, segmentTarget);
+            s = segmentSource + offsetMap.getLength(i);
+            t = segmentTarget + offsetMap.getLength(i);
+        }
+        addDifference(source, s, sourceEnd, target, t, targetEnd);
+    }
+
+    private void addDifference(@NotNull CharSequence source,
+                               int sourceStart,
+                               int sourceEnd,
+                               @NotNull CharSequence target,
+                               int targetStart,
+                               int targetEnd)
+    {
+        // Skip the common prefix and suffix
+        while (sourceStart < sourceEnd && targetStart < targetEnd
+                && source.charAt(sourceStart) == target.charAt(targetStart)) {
+            sourceStart++;
+            targetStart++;
+        }
+        while (sourceStart < sourceEnd && targetStart < targetEnd
+                && source.charAt(sourceEnd - 1) == target.charAt(targetEnd - 1)) {
+            sourceEnd--;
+            targetEnd--;
+        }
+        if (sourceStart < sourceEnd || targetStart < targetEnd) {
+            add(sourceStart, sourceEnd, target.subSequence(targetStart, targetEnd));
+        }
+    }
+}
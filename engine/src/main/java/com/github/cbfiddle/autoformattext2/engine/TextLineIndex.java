@@ -0,0 +1,63 @@
+package com.github.cbfiddle.autoformattext2.engine;
+
+import java.util.Arrays;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+  A line index computed from a character sequence, stored as a primitive array of line start offsets.
+*/
+
+final class TextLineIndex
+  implements LineIndex
+{
+    private final int textLength;
+    private final int[] lineStarts;
+    private final int lineCount;
+
+    TextLineIndex(@NotNull CharSequence text)
+    {
+        this.textLength = text.length();
+
+        int[] starts = new int[Math.max(16, text.length() / 40)];
+        int count = 1;
+        for (int i = 0; i < textLength; i++) {
+            if (text.charAt(i) == '\n') {
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                }
+                starts[count++] = i + 1;
+            }
+        }
+        this.lineStarts = starts;
+        this.lineCount = count;
+    }
+
+    @Override
+    public int getLineCount()
+    {
+        return lineCount;
+    }
+
+    @Override
+    public int getLineNumber(int offset)
+    {
+        int line = Arrays.binarySearch(lineStarts, 0, lineCount, offset);
+        return line >= 0 ? line : -line - 2;
+    }
+
+    @Override
+    public int getLineStartOffset(int line)
+    {
+        return lineStarts[line];
+    }
+
+    @Override
+    public int getLineEndOffset(int line)
+    {
+        if (line == lineCount - 1) {
+            return textLength;
+        }
+        return lineStarts[line + 1] - 1;
+    }
+}
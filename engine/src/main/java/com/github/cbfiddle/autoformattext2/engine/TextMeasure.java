@@ -0,0 +1,45 @@
+package com.github.cbfiddle.autoformattext2.engine;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+  Measures the words of a paragraph for wrapping. The unit is arbitrary, but the width of a space is one column: the
+  line width given to a {@link ParagraphWrapper} in columns is converted to this unit by multiplying by the width of a
+  space, and a tab advances to the next multiple of the tab size in columns. In the IDE, text can be measured in
+  pixels with the editor font, so that a paragraph in a proportional font is wrapped at the right margin guide.
+*/
+
+public interface TextMeasure
+{
+    /**
+      Measures text in display columns (see {@link DisplayWidth}).
+    */
+
+    TextMeasure COLUMNS = new TextMeasure()
+    {
+        @Override
+        public int getWidth(@NotNull CharSequence text, int start, int end)
+        {
+            return DisplayWidth.of(text, start, end);
+        }
+
+        @Override
+        public int getSpaceWidth()
+        {
+            return 1;
+        }
+    };
+
+    /**
+      Return the width of the text in the range {@code start} (inclusive) to {@code end} (exclusive), which contains
+      no tabs or line separators.
+    */
+
+    int getWidth(@NotNull CharSequence text, int start, int end);
+
+    /**
+      Return the width of a space, which must be positive.
+    */
+
+    int getSpaceWidth();
+}
@@ -0,0 +1,197 @@
+package com.github.cbfiddle.autoformattext2.engine;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+  Reformats every paragraph of a text, or only the comment paragraphs. The paragraphs are found in one linear scan
+  using the same rules as the paragraph at the caret, and all of the replacements are computed before any of them
+  are applied. The reformatting can also be limited to the paragraphs that contain a set of lines. Paragraphs that are
+  already formatted are detected by {@link ParagraphWrapper#isWrapped} and skipped, so a text that needs no changes
+  is never copied.
+  <p>
+  An instance must not be used by several threads at once.
+*/
+
+public final class TextReflower
+{
+    private final MarginRecognizer marginRecognizer;
+    private final ParagraphWrapper wrapper;
+    private final boolean commentsOnly;
+    private @NotNull CancellationCheck cancellationCheck = CancellationCheck.NONE;
+    private @Nullable CommentOracle commentOracle;
+    private final OffsetMap offsetMap = new OffsetMap();
+    private final StringBuilder sb = new StringBuilder();
+
+    /**
+      Create a text reflower.
+      @param commentsOnly If true, only comment paragraphs are reformatted: paragraphs whose margin contains a comment
+      prefix or, if there is a comment oracle, whose text is in a comment.
+    */
+
+    public TextReflower(@NotNull MarginRecognizer marginRecognizer, int lineWidth, boolean commentsOnly)
+    {
+        this.marginRecognizer = marginRecognizer;
+        this.wrapper = new ParagraphWrapper(marginRecognizer, lineWidth);
+        this.commentsOnly = commentsOnly;
+    }
+
+    /**
+      Specify the oracle that identifies comment paragraphs. If there is no oracle, a paragraph is a comment if its
+      margin contains a comment prefix. With an oracle, the comment lines are those whose first and last characters
+      that are not spaces or tabs are in a comment, and only the comment lines of a paragraph are reformatted, as
+      paragraphs of their own. Comments without prefixes on each line (like block comments and comments in languages
+      without registered prefixes) are found, text in string literals that looks like a comment is not, and code
+      that follows a comment with the same indentation is not merged into it.
+    */
+
+    public void setCommentOracle(@Nullable CommentOracle commentOracle)
+    {
+        this.commentOracle = commentOracle;
+    }
+
+    /**
+      Use balanced wrapping for paragraphs of up to the specified number of words (see {@link ParagraphWrapper}).
+    */
+
+    public void setBalancedWordLimit(int balancedWordLimit)
+    {
+        wrapper.setBalancedWordLimit(balancedWordLimit);
+    }
+
+    /**
+      Measure words and margins with the specified measure (see {@link ParagraphWrapper}).
+    */
+
+    public void setTextMeasure(@NotNull TextMeasure measure)
+    {
+        wrapper.setTextMeasure(measure);
+    }
+
+    /**
+      Hyphenate words that do not fit on a line using the specified hyphenator, or never if null (see
+      {@link ParagraphWrapper}).
+    */
+
+    public void setHyphenator(@Nullable Hyphenator hyphenator)
+    {
+        wrapper.setHyphenator(hyphenator);
+    }
+
+    /**
+      Remember the paragraphs that are already formatted in the specified cache (see {@link ParagraphWrapper}).
+    */
+
+    public void setWrappedBlockCache(@Nullable WrappedBlockCache wrappedBlockCache)
+    {
+        wrapper.setWrappedBlockCache(wrappedBlockCache);
+    }
+
+    /**
+      Specify a check that is called once for each line scanned or wrapped.
+    */
+
+    public void setCancellationCheck(@NotNull CancellationCheck cancellationCheck)
+    {
+        this.cancellationCheck = cancellationCheck;
+        wrapper.setCancellationCheck(cancellationCheck);
+    }
+
+    /**
+      Compute the edits that reformat the text. The text must not change while the edits are computed.
+    */
+
+    public @NotNull TextEdits computeEdits(@NotNull CharSequence text, @NotNull LineIndex lines)
+    {
+        TextEdits edits = new TextEdits();
+        ParagraphFinder paragraphFinder = new ParagraphFinder(text, lines, marginRecognizer);
+        paragraphFinder.setCancellationCheck(cancellationCheck);
+        reflowLines(paragraphFinder, text, lines, 0, lines.getLineCount() - 1, edits);
+        return edits;
+    }
+
+    /**
+      Compute the edits that reformat only the paragraphs that contain at least one of the specified lines. The
+      paragraphs are found by scanning outward from those lines, so the cost depends on the size of the paragraphs,
+      not on the size of the text. The text must not change while the edits are computed.
+    */
+
+    public @NotNull TextEdits computeEdits(@NotNull CharSequence text, @NotNull LineIndex lines, @NotNull LineRangeSet selectedLines)
+    {
+        TextEdits edits = new TextEdits();
+        ParagraphFinder paragraphFinder = new ParagraphFinder(text, lines, marginRecognizer);
+        paragraphFinder.setCancellationCheck(cancellationCheck);
+
+        // A paragraph may contain lines of several ranges, but it is reformatted once
+        int nextLine = 0;
+        for (int i = 0; i < selectedLines.size(); i++) {
+            int line = Math.max(selectedLines.getStart(i), nextLine);
+            int lastLine = Math.min(selectedLines.getEnd(i), lines.getLineCount() - 1);
+            if (line <= lastLine) {
+                if (!paragraphFinder.isEmptyLine(line) && !paragraphFinder.isBlankLine(line)) {
+                    line = Math.max(paragraphFinder.findStartLine(line), nextLine);
+                }
+                nextLine = reflowLines(paragraphFinder, text, lines, line, lastLine, edits);
+            }
+        }
+        return edits;
+    }
+
+    /**
+      Reformat the paragraphs that start at or after {@code line} and contain lines up to {@code lastLine}, adding
+      the edits. The first line must not be in the middle of a paragraph.
+
+      @return the line that follows the last paragraph.
+    */
+
+    private int reflowLines(@NotNull ParagraphFinder paragraphFinder,
+                            @NotNull CharSequence text,
+                            @NotNull LineIndex lines,
+                            int line,
+                            int lastLine,
+                            @NotNull TextEdits edits)
+    {
+        while (line <= lastLine) {
+            cancellationCheck.checkCanceled();
+            if (paragraphFinder.isEmptyLine(line) || paragraphFinder.isBlankLine(line)) {
+                line++;
+                continue;
+            }
+            int endLine = paragraphFinder.findEndLine(line);
+            if (commentsOnly && commentOracle != null) {
+                // Only the lines of the paragraph that are in a comment are reformatted, as a paragraph of their own;
+                // the lines that follow them are considered again as a paragraph
+                int nextLine = line;
+                while (nextLine <= endLine && paragraphFinder.isCommentLine(nextLine, commentOracle)) {
+                    nextLine++;
+                }
+                if (nextLine == line) {
+                    do {
+                        nextLine++;
+                    } while (nextLine <= endLine && !paragraphFinder.isCommentLine(nextLine, commentOracle));
+                    line = nextLine;
+                    continue;
+                }
+                reflow(text, lines, line, nextLine - 1, edits);
+                line = nextLine;
+                continue;
+            }
+            if (!commentsOnly || paragraphFinder.isCommentLine(line)) {
+                reflow(text, lines, line, endLine, edits);
+            }
+            line = endLine + 1;
+        }
+        return line;
+    }
+
+    private void reflow(@NotNull CharSequence text, @NotNull LineIndex lines, int startLine, int endLine, @NotNull TextEdits edits)
+    {
+        int start = lines.getLineStartOffset(startLine);
+        int end = lines.getLineEndOffset(endLine);
+        if (!wrapper.isWrapped(text, start, end)) {
+            sb.setLength(0);
+            wrapper.wrap(text, start, end, sb, offsetMap);
+            edits.addDifferences(text, start, end, sb, 0, sb.length(), offsetMap);
+        }
+    }
+}
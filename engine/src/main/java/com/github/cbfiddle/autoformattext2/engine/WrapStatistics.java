@@ -0,0 +1,57 @@
+package com.github.cbfiddle.autoformattext2.engine;
+
+/**
+  Counts and timings accumulated by a {@link ParagraphWrapper} over the paragraphs it wraps. The wrapper only
+  measures anything when it has been given a statistics object, so wrapping without one costs nothing extra.
+*/
+
+public final class WrapStatistics
+{
+    int paragraphs;
+    long characters;
+    long lines;
+    long words;
+    long marginNanos;
+
+    public int getParagraphCount()
+    {
+        return paragraphs;
+    }
+
+    public long getCharacterCount()
+    {
+        return characters;
+    }
+
+    /**
+      Return the number of source lines, not counting empty lines.
+    */
+
+    public long getLineCount()
+    {
+        return lines;
+    }
+
+    public long getWordCount()
+    {
+        return words;
+    }
+
+    /**
+      Return the time spent recognizing margins, which is part of the time spent wrapping.
+    */
+
+    public long getMarginNanos()
+    {
+        return marginNanos;
+    }
+
+    public void reset()
+    {
+        paragraphs = 0;
+        characters = 0;
+        lines = 0;
+        words = 0;
+        marginNanos = 0;
+    }
+}
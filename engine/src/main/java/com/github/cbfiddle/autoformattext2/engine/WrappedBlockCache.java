@@ -0,0 +1,167 @@
+package com.github.cbfiddle.autoformattext2.engine;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+  A bounded set of the paragraphs known to be in their reformatted form, with the settings of the wrapper that checked
+  them. When the set is full, the least recently used paragraph is forgotten. Paragraphs that need to be changed are
+  not recorded, as their reformatted text would soon be stale.
+  <p>
+  The entries are found by a 64-bit hash of the text and the settings, but an entry matches only if its settings are
+  equal and its text is the same, so a hash collision costs a check of the paragraph rather than a wrong answer. The
+  settings are compared by value, so that a paragraph is still found after the settings are rebuilt. The cache is
+  thread safe.
+*/
+
+public final class WrappedBlockCache
+{
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Map<Long,Entry> entries;
+
+    public WrappedBlockCache(int capacity)
+    {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long,Entry> eldest)
+            {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+      Return true if the range of text, whose hash is {@code hash} (see {@link #hash}), was recorded with equal
+      settings.
+    */
+
+    synchronized boolean contains(long hash, @NotNull Settings settings, @NotNull CharSequence text, int start, int end)
+    {
+        Entry entry = entries.get(hash);
+        return entry != null && entry.settings.equals(settings) && contentEquals(entry.text, text, start, end);
+    }
+
+    /**
+      Record that a range of text, whose hash is {@code hash} (see {@link #hash}), is in its reformatted form for the
+      specified settings.
+    */
+
+    synchronized void add(long hash, @NotNull Settings settings, @NotNull CharSequence text, int start, int end)
+    {
+        entries.put(hash, new Entry(settings, text.subSequence(start, end).toString()));
+    }
+
+    public synchronized void clear()
+    {
+        entries.clear();
+    }
+
+    /**
+      Return the hash of a range of text, combined with the hash of the settings.
+    */
+
+    static long hash(@NotNull CharSequence text, int start, int end, @NotNull Settings settings)
+    {
+        long hash = FNV_OFFSET_BASIS ^ settings.hashCode() * 0x9e3779b97f4a7c15L;
+        for (int i = start; i < end; i++) {
+            hash = (hash ^ text.charAt(i)) * FNV_PRIME;
+        }
+        // Mix the final state, as FNV leaves the high bits weakly dependent on the last characters
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static boolean contentEquals(@NotNull String recorded, @NotNull CharSequence text, int start, int end)
+    {
+        if (recorded.length() != end - start) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (recorded.charAt(i - start) != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+      The settings that determine the reformatted form of a paragraph. Comment syntaxes are compared by their
+      prefixes, and text measures and hyphenators by their own equality: the column measure and the hyphenators of
+      {@link Hyphenator#forLanguage} are shared instances, and measures of the same font in the IDE are equal.
+    */
+
+    static final class Settings
+    {
+        private final int width;
+        private final int balancedWordLimit;
+        private final int tabSize;
+        private final String bullets;
+        private final CommentSyntax commentSyntax;
+        private final TextMeasure measure;
+        private final @Nullable Hyphenator hyphenator;
+        private final int hashCode;
+
+        Settings(int width,
+                 int balancedWordLimit,
+                 @NotNull MarginRecognizer marginRecognizer,
+                 @NotNull TextMeasure measure,
+                 @Nullable Hyphenator hyphenator)
+        {
+            this.width = width;
+            this.balancedWordLimit = balancedWordLimit;
+            this.tabSize = marginRecognizer.getTabSize();
+            this.bullets = marginRecognizer.getBullets();
+            this.commentSyntax = marginRecognizer.getCommentSyntax();
+            this.measure = measure;
+            this.hyphenator = hyphenator;
+            this.hashCode = Objects.hash(width, balancedWordLimit, tabSize, bullets, commentSyntax, measure, hyphenator);
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Settings)) {
+                return false;
+            }
+            Settings other = (Settings) o;
+            return hashCode == other.hashCode
+                     && width == other.width
+                     && balancedWordLimit == other.balancedWordLimit
+                     && tabSize == other.tabSize
+                     && bullets.equals(other.bullets)
+                     && commentSyntax.equals(other.commentSyntax)
+                     && measure.equals(other.measure)
+                     && Objects.equals(hyphenator, other.hyphenator);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hashCode;
+        }
+    }
+
+    private static final class Entry
+    {
+        final Settings settings;
+        final String text;
+
+        Entry(@NotNull Settings settings, @NotNull String text)
+        {
+            this.settings = settings;
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,500 @@
+package com.github.cbfiddle.autoformattext2.engine.cli;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.DosFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import com.github.cbfiddle.autoformattext2.engine.CommentPrefixes;
+import com.github.cbfiddle.autoformattext2.engine.CommentSyntax;
+import com.github.cbfiddle.autoformattext2.engine.Hyphenator;
+import com.github.cbfiddle.autoformattext2.engine.LineIndex;
+import com.github.cbfiddle.autoformattext2.engine.MarginRecognizer;
+import com.github.cbfiddle.autoformattext2.engine.TextEdits;
+import com.github.cbfiddle.autoformattext2.engine.TextReflower;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+  Formats text files from the command line, using the same engine as the IDE actions. The comment prefixes recognized
+  in a file are those that {@link CommentPrefixes} registers for the language of its extension, as listed in
+  {@link #LANGUAGES}. Only comment paragraphs are formatted, except in plain text files or when {@code --all} is
+  specified. Directories are searched for plain text files and files with a listed extension.
+  <p>
+  Files are formatted in parallel. Each file is read into a string and the formatted text is streamed to a temporary
+  file that then replaces the original, so that an interrupted run never leaves a partially written file. The
+  temporary file is given the permissions of the original, and a symbolic link is followed so that the file it refers
+  to is replaced. Each line keeps its line separator. Results are reported in the order in which the files were
+  specified.
+*/
+
+public final class AutoFormatTextCli
+{
+    private static final String[] PLAIN_TEXT_EXTENSIONS = { "txt", "text" };
+
+    /**
+      The IDE language identifiers of file extensions.
+    */
+
+    private static final Map<String,String> LANGUAGES = new HashMap<>();
+
+    static {
+        language("JAVA", "java");
+        language("kotlin", "kt", "kts");
+        language("Groovy", "groovy", "gradle");
+        language("Scala", "scala");
+        language("JavaScript", "js", "mjs", "cjs");
+        language("TypeScript", "ts");
+        language("ObjectiveC", "c", "h", "cc", "cpp", "cxx", "hpp", "m", "mm");
+        language("C#", "cs");
+        language("go", "go");
+        language("Dart", "dart");
+        language("Swift", "swift");
+        language("PHP", "php");
+        language("CSS", "css");
+        language("SCSS", "scss");
+        language("LESS", "less");
+        language("Rust", "rs");
+        language("Python", "py");
+        language("Shell Script", "sh", "bash", "zsh");
+        language("yaml", "yaml", "yml");
+        language("TOML", "toml");
+        language("ruby", "rb");
+        language("Perl5", "pl", "pm");
+        language("R", "r");
+        language("Properties", "properties");
+        language("HCL", "tf", "hcl");
+        language("SQL", "sql");
+        language("Lua", "lua");
+        language("Haskell", "hs");
+        language("Elm", "elm");
+        language("Ada", "adb", "ads");
+        language("Lisp", "lisp", "cl");
+        language("Clojure", "clj", "cljs", "cljc");
+        language("Scheme", "scm", "ss");
+        language("Emacs Lisp", "el");
+        language("Erlang", "erl", "hrl");
+        language("LaTeX", "tex");
+        language("MATLAB", "matlab");
+        language("Prolog", "pro");
+        language("VB", "vb", "bas");
+    }
+
+    private static void language(@NotNull String languageId, @NotNull String... extensions)
+    {
+        for (String extension : extensions) {
+            LANGUAGES.put(extension, languageId);
+        }
+    }
+
+    private static final String USAGE =
+      "Usage: autoformattext [--width N] [--tab-size N] [--balanced N] [--hyphenate LANG] [--all] [--check | --stdout]\n" +
+      "                      <file or directory>...\n" +
+      "  --width N     the maximum line width (default 120)\n" +
+      "  --tab-size N  the tab size used to measure margins (default 4)\n" +
+      "  --balanced N  use balanced wrapping for paragraphs of up to N words (default 0, always greedy)\n" +
+      "  --hyphenate LANG\n" +
+      "                hyphenate words that do not fit on a line, using the patterns of a language such as en-us\n" +
+      "  --all         format every paragraph, not only comments\n" +
+      "  --check       report the files that would change and exit with status 1 if there are any\n" +
+      "  --stdout      write the formatted text to standard output instead of replacing the files\n";
+
+    private int lineWidth = 120;
+    private int tabSize = 4;
+    private int balancedWordLimit;
+    private @Nullable Hyphenator hyphenator;
+    private boolean all;
+    private boolean check;
+    private boolean stdout;
+    private final List<Path> roots = new ArrayList<>();
+
+    public static void main(String[] args)
+    {
+        AutoFormatTextCli cli = new AutoFormatTextCli();
+        if (!cli.parseArguments(args)) {
+            System.err.print(USAGE);
+            System.exit(2);
+        }
+        System.exit(cli.run(System.out, System.err));
+    }
+
+    private boolean parseArguments(@NotNull String[] args)
+    {
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                switch (arg) {
+                    case "--width":
+                        lineWidth = Integer.parseInt(args[++i]);
+                        break;
+                    case "--tab-size":
+                        tabSize = Integer.parseInt(args[++i]);
+                        break;
+                    case "--balanced":
+                        balancedWordLimit = Integer.parseInt(args[++i]);
+                        break;
+                    case "--hyphenate":
+                        hyphenator = Hyphenator.forLanguage(args[++i]);
+                        if (hyphenator == null) {
+                            return false;
+                        }
+                        break;
+                    case "--all":
+                        all = true;
+                        break;
+                    case "--check":
+                        check = true;
+                        break;
+                    case "--stdout":
+                        stdout = true;
+                        break;
+                    default:
+                        if (arg.startsWith("--")) {
+                            return false;
+                        }
+                        roots.add(Paths.get(arg));
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            return false;
+        }
+        return !roots.isEmpty() && lineWidth > 0 && tabSize > 0 && balancedWordLimit >= 0 && !(check && stdout);
+    }
+
+    /**
+      Format the files and report the results.
+      @return the exit status: 0 on success, 1 if {@code --check} found files that would change, 2 on errors.
+    */
+
+    private int run(@NotNull PrintStream out, @NotNull PrintStream err)
+    {
+        List<Path> files;
+        try {
+            files = collectFiles();
+        } catch (IOException e) {
+            err.println("autoformattext: " + e.getMessage());
+            return 2;
+        }
+
+        int threads = Math.min(Runtime.getRuntime().availableProcessors(), Math.max(1, files.size()));
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "autoformattext");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Only a few files are formatted ahead of the one being reported, so that the results waiting to be reported
+        // (in particular the texts waiting to be written to standard output) do not accumulate in memory
+        int window = 2 * threads;
+        List<Future<Result>> futures = new ArrayList<>(files.size());
+        int status = 0;
+        try {
+            for (int i = 0; i < files.size(); i++) {
+                while (futures.size() < Math.min(files.size(), i + window)) {
+                    Path file = files.get(futures.size());
+                    futures.add(executor.submit(() -> format(file)));
+                }
+                Path file = files.get(i);
+                Result result;
+                try {
+                    result = futures.get(i).get();
+                } catch (ExecutionException e) {
+                    err.println("autoformattext: " + file + ": " + e.getCause().getMessage());
+                    status = 2;
+                    continue;
+                } finally {
+                    futures.set(i, null);
+                }
+                if (stdout) {
+                    try {
+                        result.lineEndings.write(result.text, result.edits, out);
+                    } catch (IOException e) {
+                        // PrintStream does not throw
+                    }
+                } else if (result.changed) {
+                    out.println((check ? "would reformat " : "reformatted ") + file);
+                    if (check && status == 0) {
+                        status = 1;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            status = 2;
+        } finally {
+            executor.shutdownNow();
+        }
+        out.flush();
+        return status;
+    }
+
+    private @NotNull List<Path> collectFiles()
+      throws IOException
+    {
+        List<Path> files = new ArrayList<>();
+        for (Path root : roots) {
+            if (Files.isDirectory(root)) {
+                try (Stream<Path> stream = Files.walk(root)) {
+                    stream.filter(Files::isRegularFile)
+                      .filter(path -> hasExtension(path, PLAIN_TEXT_EXTENSIONS) || LANGUAGES.containsKey(extension(path)))
+                      .sorted()
+                      .forEach(files::add);
+                }
+            } else if (Files.isRegularFile(root)) {
+                files.add(root);
+            } else {
+                throw new IOException(root + ": no such file or directory");
+            }
+        }
+        return files;
+    }
+
+    /**
+      Format one file. Runs on a worker thread.
+    */
+
+    private @NotNull Result format(@NotNull Path file)
+      throws IOException
+    {
+        // The engine works on newline separated lines; the carriage returns are restored when the text is written
+        LineEndings lineEndings = new LineEndings();
+        CharSequence text = lineEndings.removeCarriageReturns(read(file));
+
+        String languageId = LANGUAGES.get(extension(file));
+        CommentSyntax commentSyntax = languageId != null ? CommentPrefixes.forLanguage(languageId) : CommentSyntax.NONE;
+        MarginRecognizer marginRecognizer = new MarginRecognizer(commentSyntax, tabSize);
+        boolean commentsOnly = !all && !hasExtension(file, PLAIN_TEXT_EXTENSIONS);
+        TextReflower reflower = new TextReflower(marginRecognizer, lineWidth, commentsOnly);
+        reflower.setBalancedWordLimit(balancedWordLimit);
+        reflower.setHyphenator(hyphenator);
+        TextEdits edits = reflower.computeEdits(text, LineIndex.of(text));
+
+        if (stdout) {
+            return new Result(!edits.isEmpty(), text, edits, lineEndings);
+        }
+        if (edits.isEmpty() || check) {
+            return new Result(!edits.isEmpty(), null, null, null);
+        }
+
+        // A symbolic link is followed, so that the file it refers to is replaced rather than the link itself
+        Path target = file.toRealPath();
+        Path temporary = Files.createTempFile(target.getParent(), "." + target.getFileName(), ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                lineEndings.write(text, edits, writer);
+            }
+            copyPermissions(target, temporary);
+            try {
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        return new Result(true, null, null, null);
+    }
+
+    /**
+      Give the temporary file that replaces a file the permissions of that file, as the temporary file is created
+      readable and writable only by its owner. On file systems without POSIX permissions, the read-only attribute is
+      copied instead.
+    */
+
+    private static void copyPermissions(@NotNull Path file, @NotNull Path temporary)
+      throws IOException
+    {
+        PosixFileAttributeView posix = Files.getFileAttributeView(file, PosixFileAttributeView.class);
+        if (posix != null) {
+            Files.setPosixFilePermissions(temporary, posix.readAttributes().permissions());
+            return;
+        }
+        DosFileAttributeView dos = Files.getFileAttributeView(file, DosFileAttributeView.class);
+        if (dos != null && dos.readAttributes().isReadOnly()) {
+            Files.getFileAttributeView(temporary, DosFileAttributeView.class).setReadOnly(true);
+        }
+    }
+
+    /**
+      Read a UTF-8 file. The file is closed when this returns, so that it can then be replaced on any platform.
+    */
+
+    private static @NotNull CharSequence read(@NotNull Path file)
+      throws IOException
+    {
+        try {
+            return Files.readString(file, StandardCharsets.UTF_8);
+        } catch (CharacterCodingException e) {
+            throw new IOException("not a UTF-8 text file", e);
+        }
+    }
+
+    private static boolean hasExtension(@NotNull Path file, @NotNull String... extensions)
+    {
+        String fileExtension = extension(file);
+        for (String extension : extensions) {
+            if (fileExtension.equals(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+      Return the extension of a file name in lower case, or an empty string if it has none.
+    */
+
+    private static @NotNull String extension(@NotNull Path file)
+    {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 ? name.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+    }
+
+    /**
+      The outcome of formatting one file. The text, its edits and its line endings are retained only when the
+      formatted text is written to standard output.
+    */
+
+    private static final class Result
+    {
+        final boolean changed;
+        final CharSequence text;
+        final TextEdits edits;
+        final LineEndings lineEndings;
+
+        Result(boolean changed, CharSequence text, TextEdits edits, LineEndings lineEndings)
+        {
+            this.changed = changed;
+            this.text = text;
+            this.edits = edits;
+            this.lineEndings = lineEndings;
+        }
+    }
+
+    /**
+      Records which lines of a file end with CRLF, so that each line keeps its own line separator when the
+      formatted text is written, even in a file that mixes line separators. A line break inserted by an edit uses the
+      separator of the source line in which the edit starts.
+    */
+
+    private static final class LineEndings
+    {
+        /**
+          The offsets, in the text without carriage returns, of the newlines that were preceded by a carriage return.
+        */
+
+        private int[] crlfNewlines = new int[0];
+        private int count;
+
+        /**
+          Remove the carriage return of each CRLF line separator, recording the line separators.
+        */
+
+        @NotNull CharSequence removeCarriageReturns(@NotNull CharSequence text)
+        {
+            StringBuilder sb = null;
+            int position = 0;
+            for (int i = 0, length = text.length() - 1; i < length; i++) {
+                if (text.charAt(i) == '\r' && text.charAt(i + 1) == '\n') {
+                    if (sb == null) {
+                        sb = new StringBuilder(text.length());
+                    }
+                    sb.append(text, position, i);
+                    position = i + 1;
+                    if (count == crlfNewlines.length) {
+                        crlfNewlines = Arrays.copyOf(crlfNewlines, Math.max(16, 2 * count));
+                    }
+                    crlfNewlines[count++] = sb.length();
+                }
+            }
+            if (sb == null) {
+                return text;
+            }
+            return sb.append(text, position, text.length());
+        }
+
+        /**
+          Write the result of applying the edits to a text without carriage returns, restoring the line separators.
+        */
+
+        void write(@NotNull CharSequence text, @NotNull TextEdits edits, @NotNull Appendable out)
+          throws IOException
+        {
+            if (count == 0) {
+                edits.writeTo(text, out);
+                return;
+            }
+            int position = 0;
+            for (int edit = 0; edit < edits.size(); edit++) {
+                int start = edits.getStart(edit);
+                writeSource(text, position, start, out);
+                writeReplacement(edits.getReplacement(edit), isCrlf(nextNewline(text, start)), out);
+                position = edits.getEnd(edit);
+            }
+            writeSource(text, position, text.length(), out);
+        }
+
+        private void writeSource(@NotNull CharSequence text, int start, int end, @NotNull Appendable out)
+          throws IOException
+        {
+            int position = start;
+            for (int i = start; i < end; i++) {
+                if (text.charAt(i) == '\n' && isCrlf(i)) {
+                    out.append(text, position, i).append("\r\n");
+                    position = i + 1;
+                }
+            }
+            out.append(text, position, end);
+        }
+
+        private static void writeReplacement(@NotNull CharSequence replacement, boolean crlf, @NotNull Appendable out)
+          throws IOException
+        {
+            if (!crlf) {
+                out.append(replacement);
+                return;
+            }
+            int position = 0;
+            for (int i = 0; i < replacement.length(); i++) {
+                if (replacement.charAt(i) == '\n') {
+                    out.append(replacement, position, i).append("\r\n");
+                    position = i + 1;
+                }
+            }
+            out.append(replacement, position, replacement.length());
+        }
+
+        private static int nextNewline(@NotNull CharSequence text, int offset)
+        {
+            while (offset < text.length() && text.charAt(offset) != '\n') {
+                offset++;
+            }
+            return offset;
+        }
+
+        private boolean isCrlf(int newline)
+        {
+            return Arrays.binarySearch(crlfNewlines, 0, count, newline) >= 0;
+        }
+    }
+}
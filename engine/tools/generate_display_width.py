@@ -0,0 +1,117 @@
+#!/usr/bin/env python3
+"""
+Generate DisplayWidthTable.java, the packed code point to display width table used by DisplayWidth.
+
+The widths are derived from the Unicode Character Database of the Python interpreter that runs the script:
+
+  0  combining and enclosing marks (Mn, Me), format characters (Cf) other than the soft hyphen, C1 controls, and
+     the conjoining Hangul vowels and final consonants
+  2  East Asian Wide (W) and Fullwidth (F) characters, including emoji with default emoji presentation, and the
+     unassigned code points of the CJK ideograph blocks and planes 2 and 3, which are wide by default
+  1  everything else, including East Asian Ambiguous (A) characters, which are narrow outside East Asian contexts
+
+Usage: python3 engine/tools/generate_display_width.py > \
+         engine/src/main/java/com/github/cbfiddle/autoformattext2/engine/DisplayWidthTable.java
+"""
+
+import unicodedata
+
+BLOCK_BITS = 8
+BLOCK_SIZE = 1 << BLOCK_BITS
+CODE_POINTS = 0x110000
+
+DEFAULT_WIDE = [(0x3400, 0x4DBF), (0x4E00, 0x9FFF), (0xF900, 0xFAFF), (0x20000, 0x2FFFD), (0x30000, 0x3FFFD)]
+
+
+def width(cp):
+    if cp < 0x80:
+        return 1
+    if 0xD800 <= cp <= 0xDFFF:
+        return 1
+    ch = chr(cp)
+    category = unicodedata.category(ch)
+    if category in ('Mn', 'Me', 'Cc') or (category == 'Cf' and cp != 0xAD):
+        return 0
+    if 0x1160 <= cp <= 0x11FF or 0xD7B0 <= cp <= 0xD7FF:
+        return 0
+    if category == 'Cn':
+        # The width recorded for unassigned code points is not reliable, so the documented default is used
+        return 2 if any(low <= cp <= high for low, high in DEFAULT_WIDE) else 1
+    if unicodedata.east_asian_width(ch) in ('W', 'F'):
+        return 2
+    return 1
+
+
+def block_chars(cp):
+    """Pack the widths of a block, 8 to a char, the first code point in the low bits."""
+    chars = []
+    for i in range(0, BLOCK_SIZE, 8):
+        value = 0
+        for j in range(8):
+            value |= width(cp + i + j) << (2 * j)
+        chars.append(value)
+    return tuple(chars)
+
+
+# Unicode escapes are translated before Java source is parsed, so these must be written as escape sequences
+ESCAPES = {0x0A: '\\n', 0x0D: '\\r', 0x22: '\\"', 0x5C: '\\\\'}
+
+
+def literal(values, per_line=16):
+    lines = []
+    for i in range(0, len(values), per_line):
+        lines.append('        "' + ''.join(ESCAPES.get(v, '\\u%04x' % v) for v in values[i:i + per_line]) + '"')
+    return ' +\n'.join(lines)
+
+
+def main():
+    blocks = {}
+    index = []
+    for cp in range(0, CODE_POINTS, BLOCK_SIZE):
+        chars = block_chars(cp)
+        index.append(blocks.setdefault(chars, len(blocks)))
+
+    # The block index is run length encoded as (count, block) pairs, as most planes are uniform
+    runs = []
+    for block in index:
+        if runs and runs[-1][1] == block and runs[-1][0] < 0xFFFF:
+            runs[-1][0] += 1
+        else:
+            runs.append([1, block])
+    run_chars = [v for run in runs for v in run]
+    block_data = [v for chars in sorted(blocks, key=blocks.get) for v in chars]
+
+    print('''package com.github.cbfiddle.autoformattext2.engine;
+
+/**
+  The packed data of {@link DisplayWidth}, generated by {@code engine/tools/generate_display_width.py} from the
+  Unicode %s Character Database. Do not edit.
+*/
+
+final class DisplayWidthTable
+{
+    private DisplayWidthTable()
+    {
+    }
+
+    static final int BLOCK_BITS = %d;
+
+    /**
+      The index of the block of widths of each range of {@code 1 << BLOCK_BITS} code points, as run length encoded
+      (count, block) pairs.
+    */
+
+    static final String BLOCK_INDEX =
+%s;
+
+    /**
+      The widths of the distinct blocks, two bits per code point, eight code points per char.
+    */
+
+    static final String BLOCKS =
+%s;
+}''' % (unicodedata.unidata_version, BLOCK_BITS, literal(run_chars), literal(block_data)))
+
+
+if __name__ == '__main__':
+    main()
@@ -3,3 +3,5 @@ plugins {
 }
 
 rootProject.name = "AutoFormatText2"
+
+include("engine")
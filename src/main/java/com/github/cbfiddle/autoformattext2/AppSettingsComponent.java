@@ -1,25 +1,159 @@
 package com.github.cbfiddle.autoformattext2;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import com.github.cbfiddle.autoformattext2.engine.Hyphenator;
+import com.intellij.openapi.fileTypes.FileType;
+import com.intellij.openapi.fileTypes.FileTypeManager;
+import com.intellij.openapi.options.ConfigurationException;
+import com.intellij.openapi.ui.ComboBox;
+import com.intellij.ui.ToolbarDecorator;
+import com.intellij.ui.components.JBCheckBox;
 import com.intellij.ui.components.JBLabel;
 import com.intellij.ui.components.JBTextField;
+import com.intellij.ui.table.TableView;
+import com.intellij.util.ui.ColumnInfo;
 import com.intellij.util.ui.FormBuilder;
+import com.intellij.util.ui.ListTableModel;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
+import javax.swing.table.TableCellEditor;
 
 public class AppSettingsComponent
 {
     private final JPanel myMainPanel;
     private final JBTextField lineWidthText = new JBTextField();
+    private final JBCheckBox balancedWrappingCheckBox = new JBCheckBox("Balanced wrapping");
+    private final JBTextField balancedWordLimitText = new JBTextField();
+    private final JBCheckBox collectStatisticsCheckBox = new JBCheckBox("Collect performance statistics");
+    private final JBTextField slowInvocationThresholdText = new JBTextField();
+    private final JBCheckBox formatOnSaveCheckBox = new JBCheckBox("Format edited text on save");
+    private final JBCheckBox reflowAsYouTypeCheckBox = new JBCheckBox("Reflow text while typing");
+    private final JBCheckBox pixelWrappingCheckBox = new JBCheckBox("Wrap to the right margin guide using the editor font");
+    private final JBTextField hyphenationLanguageText = new JBTextField();
+    private final ListTableModel<FormattingProfile> profileModel = new ListTableModel<>(
+      fileTypeColumn(),
+      column("Line Width", Integer.class, p -> p.lineWidth, (p, v) -> p.lineWidth = v != null ? v : 0),
+      column("Bullets", String.class, p -> p.bullets, (p, v) -> p.bullets = v),
+      column("Comment Prefixes", String.class, p -> p.commentPrefixes, (p, v) -> p.commentPrefixes = v),
+      column("Balanced", Boolean.class, p -> p.balancedWrapping, (p, v) -> p.balancedWrapping = v),
+      column("Enabled", Boolean.class, p -> p.enabled, (p, v) -> p.enabled = v));
+    private final TableView<FormattingProfile> profileTable = new TableView<>(profileModel);
 
     public AppSettingsComponent()
     {
        myMainPanel = FormBuilder.createFormBuilder()
            .addLabeledComponent(new JBLabel("Line width: "), lineWidthText, 1, false)
            .addComponent(new JBLabel("If 0, the right margin determines the line width"), 1)
-           .addComponentFillVertically(new JPanel(), 0)
+           .addComponent(balancedWrappingCheckBox, 1)
+           .addComponent(new JBLabel("Choose line breaks that make the lines of a paragraph as even as possible"), 1)
+           .addLabeledComponent(new JBLabel("Balanced wrapping word limit: "), balancedWordLimitText, 1, false)
+           .addComponent(new JBLabel("Longer paragraphs are wrapped greedily"), 1)
+           .addComponent(formatOnSaveCheckBox, 1)
+           .addComponent(new JBLabel("Reformat the comment paragraphs (all paragraphs, in plain text files) edited since the last save"), 1)
+           .addComponent(reflowAsYouTypeCheckBox, 1)
+           .addComponent(new JBLabel("Rewrap the comment paragraph being typed in (any paragraph, in plain text files) after a pause"), 1)
+           .addComponent(pixelWrappingCheckBox, 1)
+           .addComponent(new JBLabel("Measure words in pixels, for proportional fonts and characters that are not one column wide"), 1)
+           .addLabeledComponent(new JBLabel("Hyphenation language: "), hyphenationLanguageText, 1, false)
+           .addComponent(new JBLabel("Hyphenate words that do not fit on a line, such as en-us; if empty, words are not hyphenated"), 1)
+           .addComponent(collectStatisticsCheckBox, 1)
+           .addComponent(new JBLabel("Use Tools | Copy Formatting Statistics to copy the timings of recent invocations"), 1)
+           .addLabeledComponent(new JBLabel("Log invocations slower than (ms): "), slowInvocationThresholdText, 1, false)
+           .addComponent(new JBLabel("If 0, no invocations are logged"), 1)
+           .addLabeledComponentFillVertically("File type profiles:", createProfilePanel())
+           .addComponent(new JBLabel("A profile sets the line width, bullets, comment prefixes and balanced wrapping of files of its type;"), 1)
+           .addComponent(new JBLabel("the other settings above, including the balanced word limit, still apply. A line width of 0 uses"), 1)
+           .addComponent(new JBLabel("the right margin; empty comment prefixes use those of the language."), 1)
            .getPanel();
      }
 
+    private @NotNull JPanel createProfilePanel()
+    {
+        return ToolbarDecorator.createDecorator(profileTable)
+          .setAddAction(button -> {
+              profileTable.stopEditing();
+              profileModel.addRow(new FormattingProfile());
+              int row = profileModel.getRowCount() - 1;
+              profileTable.getSelectionModel().setSelectionInterval(row, row);
+          })
+          .disableUpDownActions()
+          .createPanel();
+    }
+
+    private static @NotNull ColumnInfo<FormattingProfile,String> fileTypeColumn()
+    {
+        return new ColumnInfo<>("File Type")
+        {
+            @Override
+            public @Nullable String valueOf(FormattingProfile profile)
+            {
+                return profile.fileType;
+            }
+
+            @Override
+            public boolean isCellEditable(FormattingProfile profile)
+            {
+                return true;
+            }
+
+            @Override
+            public void setValue(FormattingProfile profile, String value)
+            {
+                profile.fileType = value != null ? value : "";
+            }
+
+            @Override
+            public @NotNull TableCellEditor getEditor(FormattingProfile profile)
+            {
+                String[] names = Arrays.stream(FileTypeManager.getInstance().getRegisteredFileTypes())
+                  .map(FileType::getName)
+                  .sorted(String.CASE_INSENSITIVE_ORDER)
+                  .toArray(String[]::new);
+                return new DefaultCellEditor(new ComboBox<>(names));
+            }
+        };
+    }
+
+    private static <T> @NotNull ColumnInfo<FormattingProfile,T> column(@NotNull String name,
+                                                                       @NotNull Class<T> type,
+                                                                       @NotNull Function<FormattingProfile,T> getter,
+                                                                       @NotNull BiConsumer<FormattingProfile,T> setter)
+    {
+        return new ColumnInfo<>(name)
+        {
+            @Override
+            public @Nullable T valueOf(FormattingProfile profile)
+            {
+                return getter.apply(profile);
+            }
+
+            @Override
+            public @NotNull Class<?> getColumnClass()
+            {
+                return type;
+            }
+
+            @Override
+            public boolean isCellEditable(FormattingProfile profile)
+            {
+                return true;
+            }
+
+            @Override
+            public void setValue(FormattingProfile profile, T value)
+            {
+                setter.accept(profile, value);
+            }
+        };
+    }
+
      public JPanel getPanel()
      {
        return myMainPanel;
@@ -43,4 +177,137 @@ public class AppSettingsComponent
             return 0;
         }
     }
+
+    public void setBalancedWrapping(boolean balancedWrapping)
+    {
+        balancedWrappingCheckBox.setSelected(balancedWrapping);
+    }
+
+    public boolean getBalancedWrapping()
+    {
+        return balancedWrappingCheckBox.isSelected();
+    }
+
+    public void setBalancedWordLimit(int balancedWordLimit)
+    {
+        balancedWordLimitText.setText(Integer.toString(balancedWordLimit));
+    }
+
+    /**
+      Return the balanced wrapping word limit that has been entered.
+      @throws ConfigurationException if it is not a number of words.
+    */
+
+    public int getBalancedWordLimit()
+      throws ConfigurationException
+    {
+        try {
+            int balancedWordLimit = Integer.parseInt(balancedWordLimitText.getText().trim());
+            if (balancedWordLimit >= 0) {
+                return balancedWordLimit;
+            }
+        } catch (NumberFormatException ignored) {
+        }
+        throw new ConfigurationException("The balanced wrapping word limit must be a number of words (0 or more).");
+    }
+
+    public void setCollectStatistics(boolean collectStatistics)
+    {
+        collectStatisticsCheckBox.setSelected(collectStatistics);
+    }
+
+    public boolean getCollectStatistics()
+    {
+        return collectStatisticsCheckBox.isSelected();
+    }
+
+    public void setSlowInvocationThreshold(int slowInvocationThreshold)
+    {
+        slowInvocationThresholdText.setText(Integer.toString(slowInvocationThreshold));
+    }
+
+    public int getSlowInvocationThreshold()
+    {
+        try {
+            return Integer.parseInt(slowInvocationThresholdText.getText());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    public void setFormatOnSave(boolean formatOnSave)
+    {
+        formatOnSaveCheckBox.setSelected(formatOnSave);
+    }
+
+    public boolean getFormatOnSave()
+    {
+        return formatOnSaveCheckBox.isSelected();
+    }
+
+    public void setReflowAsYouType(boolean reflowAsYouType)
+    {
+        reflowAsYouTypeCheckBox.setSelected(reflowAsYouType);
+    }
+
+    public boolean getReflowAsYouType()
+    {
+        return reflowAsYouTypeCheckBox.isSelected();
+    }
+
+    public void setPixelWrapping(boolean pixelWrapping)
+    {
+        pixelWrappingCheckBox.setSelected(pixelWrapping);
+    }
+
+    public boolean getPixelWrapping()
+    {
+        return pixelWrappingCheckBox.isSelected();
+    }
+
+    public void setHyphenationLanguage(@NotNull String hyphenationLanguage)
+    {
+        hyphenationLanguageText.setText(hyphenationLanguage);
+    }
+
+    public @NotNull String getHyphenationLanguage()
+      throws ConfigurationException
+    {
+        String language = hyphenationLanguageText.getText().trim().toLowerCase();
+        if (!language.isEmpty() && Hyphenator.forLanguage(language) == null) {
+            throw new ConfigurationException("There are no hyphenation patterns for the language \"" + language + "\".");
+        }
+        return language;
+    }
+
+    /**
+      Commit the value of a profile cell that is being edited.
+    */
+
+    public void stopEditing()
+    {
+        profileTable.stopEditing();
+    }
+
+    /**
+      Show copies of the specified profiles, so that the settings are not changed until they are applied.
+    */
+
+    public void setProfiles(@NotNull List<FormattingProfile> profiles)
+    {
+        List<FormattingProfile> copies = new ArrayList<>(profiles.size());
+        for (FormattingProfile profile : profiles) {
+            copies.add(profile.copy());
+        }
+        profileModel.setItems(copies);
+    }
+
+    public @NotNull List<FormattingProfile> getProfiles()
+    {
+        List<FormattingProfile> profiles = new ArrayList<>();
+        for (FormattingProfile profile : profileModel.getItems()) {
+            profiles.add(profile.copy());
+        }
+        return profiles;
+    }
 }
@@ -1,6 +1,8 @@
 package com.github.cbfiddle.autoformattext2;
 
 import com.intellij.openapi.options.Configurable;
+import com.intellij.openapi.options.ConfigurationException;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
@@ -33,14 +35,71 @@ public class AppSettingsConfigurable implements Configurable
     {
         AppSettingsState settings = AppSettingsState.getInstance();
         boolean modified = mySettingsComponent.getLineWidth() != settings.lineWidth;
+        modified |= mySettingsComponent.getBalancedWrapping() != settings.balancedWrapping;
+        modified |= isBalancedWordLimitModified(settings);
+        modified |= mySettingsComponent.getCollectStatistics() != settings.collectStatistics;
+        modified |= mySettingsComponent.getSlowInvocationThreshold() != settings.slowInvocationThreshold;
+        modified |= mySettingsComponent.getFormatOnSave() != settings.formatOnSave;
+        modified |= mySettingsComponent.getReflowAsYouType() != settings.reflowAsYouType;
+        modified |= mySettingsComponent.getPixelWrapping() != settings.pixelWrapping;
+        modified |= isHyphenationLanguageModified(settings);
+        modified |= !mySettingsComponent.getProfiles().equals(settings.profiles);
         return modified;
     }
 
+    /**
+      Return true if the balanced wrapping word limit has been changed. An invalid limit counts as a change, so that
+      it is reported when the settings are applied.
+    */
+
+    private boolean isBalancedWordLimitModified(@NotNull AppSettingsState settings)
+    {
+        try {
+            return mySettingsComponent.getBalancedWordLimit() != settings.balancedWordLimit;
+        } catch (ConfigurationException e) {
+            return true;
+        }
+    }
+
+    /**
+      Return true if the hyphenation language has been changed. A language without patterns counts as a change, so
+      that it is reported when the settings are applied.
+    */
+
+    private boolean isHyphenationLanguageModified(@NotNull AppSettingsState settings)
+    {
+        try {
+            return !mySettingsComponent.getHyphenationLanguage().equals(settings.hyphenationLanguage);
+        } catch (ConfigurationException e) {
+            return true;
+        }
+    }
+
     @Override
     public void apply()
+      throws ConfigurationException
     {
+        mySettingsComponent.stopEditing();
+
+        // Validate before changing any setting, so that invalid input leaves all of them unchanged
+        int balancedWordLimit = mySettingsComponent.getBalancedWordLimit();
+        String hyphenationLanguage = mySettingsComponent.getHyphenationLanguage();
+
         AppSettingsState settings = AppSettingsState.getInstance();
         settings.lineWidth = mySettingsComponent.getLineWidth();
+        settings.balancedWrapping = mySettingsComponent.getBalancedWrapping();
+        settings.balancedWordLimit = balancedWordLimit;
+        if (settings.collectStatistics && !mySettingsComponent.getCollectStatistics()) {
+            FormattingStatistics.getInstance().clear();
+        }
+        settings.collectStatistics = mySettingsComponent.getCollectStatistics();
+        settings.slowInvocationThreshold = mySettingsComponent.getSlowInvocationThreshold();
+        settings.formatOnSave = mySettingsComponent.getFormatOnSave();
+        settings.reflowAsYouType = mySettingsComponent.getReflowAsYouType();
+        settings.pixelWrapping = mySettingsComponent.getPixelWrapping();
+        settings.hyphenationLanguage = hyphenationLanguage;
+        settings.profiles = mySettingsComponent.getProfiles();
+        FormattingRules.invalidate();
     }
 
     @Override
@@ -48,6 +107,15 @@ public class AppSettingsConfigurable implements Configurable
     {
         AppSettingsState settings = AppSettingsState.getInstance();
         mySettingsComponent.setLineWidth(settings.lineWidth);
+        mySettingsComponent.setBalancedWrapping(settings.balancedWrapping);
+        mySettingsComponent.setBalancedWordLimit(settings.balancedWordLimit);
+        mySettingsComponent.setCollectStatistics(settings.collectStatistics);
+        mySettingsComponent.setSlowInvocationThreshold(settings.slowInvocationThreshold);
+        mySettingsComponent.setFormatOnSave(settings.formatOnSave);
+        mySettingsComponent.setReflowAsYouType(settings.reflowAsYouType);
+        mySettingsComponent.setPixelWrapping(settings.pixelWrapping);
+        mySettingsComponent.setHyphenationLanguage(settings.hyphenationLanguage);
+        mySettingsComponent.setProfiles(settings.profiles);
     }
 
     @Override
@@ -1,5 +1,8 @@
 package com.github.cbfiddle.autoformattext2;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.components.PersistentStateComponent;
 import com.intellij.openapi.components.State;
@@ -16,12 +19,45 @@ import org.jetbrains.annotations.Nullable;
 final class AppSettingsState implements PersistentStateComponent<AppSettingsState>
 {
     public int lineWidth = 0;
+    public boolean balancedWrapping = false;
+    public int balancedWordLimit = 50000;
+    public boolean collectStatistics = false;
+    public int slowInvocationThreshold = 0;
+    public boolean formatOnSave = false;
+    public boolean reflowAsYouType = false;
+    public boolean pixelWrapping = false;
+    public String hyphenationLanguage = "";
+    public List<FormattingProfile> profiles = new ArrayList<>();
 
     static AppSettingsState getInstance()
     {
         return ApplicationManager.getApplication().getService(AppSettingsState.class);
     }
 
+    /**
+      Return the number of words up to which paragraphs are wrapped in balanced mode, or 0 if balanced wrapping is
+      disabled.
+    */
+
+    int getEffectiveBalancedWordLimit()
+    {
+        return balancedWrapping ? balancedWordLimit : 0;
+    }
+
+    /**
+      Return the profile for the file type with the specified name, or null if there is none.
+    */
+
+    @Nullable FormattingProfile findProfile(@NotNull String fileTypeName)
+    {
+        for (FormattingProfile profile : profiles) {
+            if (fileTypeName.equals(profile.fileType)) {
+                return profile;
+            }
+        }
+        return null;
+    }
+
     @Override
     public @NotNull AppSettingsState getState()
     {
@@ -32,5 +68,6 @@ final class AppSettingsState implements PersistentStateComponent<AppSettingsStat
     public void loadState(@NotNull AppSettingsState state)
     {
         XmlSerializerUtil.copyBean(state, this);
+        FormattingRules.invalidate();
     }
 }
@@ -0,0 +1,71 @@
+package com.github.cbfiddle.autoformattext2;
+
+import java.util.List;
+
+import com.intellij.openapi.actionSystem.ActionUpdateThread;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.CommonDataKeys;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.wm.StatusBar;
+import org.jetbrains.annotations.NotNull;
+
+/**
+  Reformats the comments in every file under the selected files and directories (every paragraph, in plain text
+  files). The work runs in the background and can be cancelled. The number of files that could not be formatted is
+  shown in the status bar.
+*/
+
+public class AutoFormatDirectoryAction
+  extends AnAction
+{
+    public void actionPerformed(@NotNull AnActionEvent event)
+    {
+        Project project = event.getData(CommonDataKeys.PROJECT);
+        VirtualFile[] roots = event.getData(CommonDataKeys.VIRTUAL_FILE_ARRAY);
+        if (project == null || roots == null || roots.length == 0) {
+            return;
+        }
+
+        ProjectReflower reflower = new ProjectReflower(project);
+
+        new Task.Backgroundable(project, "Formatting text", true)
+        {
+            private int skipped;
+
+            @Override
+            public void run(@NotNull ProgressIndicator indicator)
+            {
+                indicator.setText("Collecting files");
+                List<VirtualFile> files = reflower.collectFiles(roots);
+                indicator.setText("Formatting text");
+                skipped = reflower.run(files, indicator);
+            }
+
+            @Override
+            public void onSuccess()
+            {
+                if (skipped > 0) {
+                    StatusBar.Info.set(skipped + (skipped == 1 ? " file was" : " files were")
+                                         + " skipped because they could not be formatted; see the log for details", project);
+                }
+            }
+        }.queue();
+    }
+
+    @Override
+    public void update(@NotNull AnActionEvent event)
+    {
+        VirtualFile[] roots = event.getData(CommonDataKeys.VIRTUAL_FILE_ARRAY);
+        event.getPresentation().setEnabledAndVisible(event.getProject() != null && roots != null && roots.length > 0);
+    }
+
+    @Override
+    public @NotNull ActionUpdateThread getActionUpdateThread()
+    {
+        return ActionUpdateThread.BGT;
+    }
+}
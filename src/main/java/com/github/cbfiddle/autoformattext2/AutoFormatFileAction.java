@@ -0,0 +1,67 @@
+package com.github.cbfiddle.autoformattext2;
+
+import com.github.cbfiddle.autoformattext2.engine.MarginRecognizer;
+import com.github.cbfiddle.autoformattext2.engine.TextEdits;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.CommonDataKeys;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.command.CommandProcessor;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.fileTypes.FileType;
+import com.intellij.openapi.fileTypes.FileTypeManager;
+import com.intellij.openapi.fileTypes.FileTypes;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+
+/**
+  Reformats all of the comments in the current file (all of the paragraphs, in a plain text file) as a single
+  undoable command.
+*/
+
+public class AutoFormatFileAction
+  extends AnAction
+{
+    public void actionPerformed(@NotNull AnActionEvent event)
+    {
+        Editor editor = event.getData(CommonDataKeys.EDITOR);
+
+        // Don't do anything on read-only documents
+        if (editor == null || !editor.getDocument().isWritable()) {
+            return;
+        }
+
+        Project project = event.getData(CommonDataKeys.PROJECT);
+
+        VirtualFile virtualFile = event.getData(CommonDataKeys.VIRTUAL_FILE);
+        if (virtualFile == null) {
+            return;
+        }
+
+        FileType fileType = FileTypeManager.getInstance().getFileTypeByFile(virtualFile);
+        FormattingRules rules = FormattingRules.forFileType(fileType);
+        if (!rules.isEnabled()) {
+            return;
+        }
+        int lineWidth = rules.getLineWidth(editor, project);
+        MarginRecognizer marginRecognizer = rules.getMarginRecognizer(editor, project);
+        boolean commentsOnly = fileType != FileTypes.PLAIN_TEXT;
+        DocumentReflower reflower = new DocumentReflower(marginRecognizer, lineWidth, commentsOnly, rules.getBalancedWordLimit());
+        reflower.setTextMeasure(rules.getTextMeasure(editor));
+        reflower.setHyphenator(rules.getHyphenator());
+        if (commentsOnly) {
+            reflower.setCommentOracle(HighlighterCommentOracle.forEditor(editor, project, virtualFile));
+        }
+
+        Document document = editor.getDocument();
+        TextEdits edits = reflower.computeEdits(document);
+        if (edits.isEmpty()) {
+            return;
+        }
+
+        CommandProcessor.getInstance().executeCommand(project, () -> ApplicationManager.getApplication().runWriteAction(
+            () -> DocumentReflower.applyInBulk(document, edits)), "Format All Comments in File", null);
+    }
+}
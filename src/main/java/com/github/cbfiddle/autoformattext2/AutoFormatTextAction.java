@@ -9,9 +9,7 @@ public class AutoFormatTextAction
 {
     public void actionPerformed(@NotNull AnActionEvent event)
     {
-        // Get optional maximum line width from settings
-        AppSettingsState settings = AppSettingsState.getInstance().getState();
-        int specifiedLineWidth = settings.lineWidth;
-        AutoFormatTextActionProcessor p = new AutoFormatTextActionProcessor(event, specifiedLineWidth);
+        // The line width and other rules come from the settings for the file type
+        AutoFormatTextActionProcessor p = new AutoFormatTextActionProcessor(event);
     }
 }
@@ -1,32 +1,67 @@
 package com.github.cbfiddle.autoformattext2;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
-import java.util.StringTokenizer;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
+import com.github.cbfiddle.autoformattext2.FormattingStatistics.Phase;
+import com.github.cbfiddle.autoformattext2.engine.Hyphenator;
+import com.github.cbfiddle.autoformattext2.engine.MarginRecognizer;
+import com.github.cbfiddle.autoformattext2.engine.OffsetMap;
+import com.github.cbfiddle.autoformattext2.engine.ParagraphFinder;
+import com.github.cbfiddle.autoformattext2.engine.ParagraphIndex;
+import com.github.cbfiddle.autoformattext2.engine.ParagraphWrapper;
+import com.github.cbfiddle.autoformattext2.engine.TextEdits;
+import com.github.cbfiddle.autoformattext2.engine.TextMeasure;
+import com.github.cbfiddle.autoformattext2.engine.WrapStatistics;
+import com.intellij.concurrency.JobLauncher;
 import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.actionSystem.CommonDataKeys;
 import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.command.CommandProcessor;
+import com.intellij.openapi.editor.Caret;
+import com.intellij.openapi.editor.CaretState;
+import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.editor.Editor;
-import com.intellij.openapi.editor.EditorModificationUtil;
-import com.intellij.openapi.editor.EditorSettings;
-import com.intellij.openapi.editor.SelectionModel;
 import com.intellij.openapi.fileTypes.FileType;
 import com.intellij.openapi.fileTypes.FileTypeManager;
-import com.intellij.openapi.fileTypes.StdFileTypes;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+  Reformats the selected text, or the paragraph at the caret, for every caret of the editor, in two phases. The
+  replacement is computed in a read action from a snapshot of the document and the carets; it is then applied on the
+  event dispatch thread in a short write command, which is a single undoable step however many carets there are.
+  Blocks of up to {@link #SYNCHRONOUS_LIMIT} characters are computed immediately on the event dispatch thread. Larger
+  ones are computed in a non-blocking read action, which is cancelled by any write action; if the document changed
+  before the result could be applied, the reformat is started again from the current state of the editor.
+  <p>
+  The blocks of the carets are merged where they overlap, so that a paragraph containing several carets is reformatted
+  once. When there are many blocks, they are reformatted concurrently.
+*/
 
 class AutoFormatTextActionProcessor
 {
-    private FileType fileType;
-    private int tabSize;
+    /**
+      The size of the text (the selections, or the paragraph at a caret with no selection) up to which the
+      replacement is computed synchronously. Computing it for such a block takes well under a millisecond.
+    */
+
+    private static final int SYNCHRONOUS_LIMIT = 64 * 1024;
+
+    /**
+      The number of blocks from which the blocks are reformatted concurrently, in a background computation.
+    */
 
-    public AutoFormatTextActionProcessor(AnActionEvent event, int specifiedLineWidth)
+    private static final int CONCURRENT_BLOCK_COUNT = 8;
+
+    public AutoFormatTextActionProcessor(AnActionEvent event)
     {
         Editor editor = event.getData(CommonDataKeys.EDITOR);
 
@@ -42,368 +77,536 @@ class AutoFormatTextActionProcessor
             return;
         }
 
-        fileType = FileTypeManager.getInstance().getFileTypeByFile(virtualFile);
+        FileType fileType = FileTypeManager.getInstance().getFileTypeByFile(virtualFile);
+        FormattingRules rules = FormattingRules.forFileType(fileType);
+        if (rules.isEnabled()) {
+            start(editor, project, rules);
+        }
+    }
 
-        // The default line width is the right margin as determined by the editor/project settings.
+    /**
+      Capture the state of the editor and compute and apply the replacement. Must be called on the event dispatch
+      thread.
+    */
 
-        int lineWidth = specifiedLineWidth;
-        EditorSettings settings = editor.getSettings();
-        if (lineWidth == 0) {
-            lineWidth = settings.getRightMargin(project);
+    private static void start(@NotNull Editor editor, Project project, @NotNull FormattingRules rules)
+    {
+        Snapshot snapshot = new Snapshot(editor, project, rules);
+        if (snapshot.isSmall()) {
+            Replacement replacement = snapshot.compute();
+            if (replacement != null) {
+                replacement.apply();
+            }
+            return;
         }
 
-        tabSize = settings.getTabSize(project);
-        if (tabSize < 1) {
-            tabSize = 1;
+        ReadAction.nonBlocking(snapshot::compute)
+          .expireWhen(editor::isDisposed)
+          .coalesceBy(editor, AutoFormatTextActionProcessor.class)
+          .finishOnUiThread(ModalityState.defaultModalityState(), replacement -> {
+              if (snapshot.isStale()) {
+                  // The document changed after the snapshot was taken, so the captured carets are no longer valid
+                  start(editor, project, rules);
+              } else if (replacement != null) {
+                  replacement.apply();
+              }
+          })
+          .submit(AppExecutorUtil.getAppExecutorService());
+    }
+
+    /**
+      The state of the editor when the action was invoked: the document modification stamp and the position and
+      selection of every caret. It is captured on the event dispatch thread and read by the computation.
+    */
+
+    private static final class Snapshot
+    {
+        final Editor editor;
+        final Project project;
+        final Document document;
+        final long modificationStamp;
+        final int lineWidth;
+        final int balancedWordLimit;
+        final MarginRecognizer marginRecognizer;
+        final TextMeasure measure;
+        final @Nullable Hyphenator hyphenator;
+
+        // For each caret: the offset, selection start, and selection end
+        final int[] caretOffsets;
+
+        // Chosen by findParagraphSource: the paragraph index of the document, or else a finder that scans the lines
+        // around each block
+        private @Nullable ParagraphIndex paragraphIndex;
+        private @Nullable ParagraphFinder paragraphFinder;
+
+        // Null unless statistics are collected
+        final @Nullable FormattingStatistics.Invocation statistics;
+
+        Snapshot(@NotNull Editor editor, Project project, @NotNull FormattingRules rules)
+        {
+            this.editor = editor;
+            this.project = project;
+            this.document = editor.getDocument();
+            this.modificationStamp = document.getModificationStamp();
+            this.lineWidth = rules.getLineWidth(editor, project);
+            this.balancedWordLimit = rules.getBalancedWordLimit();
+            this.marginRecognizer = rules.getMarginRecognizer(editor, project);
+            this.measure = rules.getTextMeasure(editor);
+            this.hyphenator = rules.getHyphenator();
+            this.statistics = FormattingStatistics.startInvocation();
+
+            List<Caret> carets = editor.getCaretModel().getAllCarets();
+            this.caretOffsets = new int[3 * carets.size()];
+            for (int i = 0; i < carets.size(); i++) {
+                Caret caret = carets.get(i);
+                caretOffsets[3 * i] = caret.getOffset();
+                caretOffsets[3 * i + 1] = caret.getSelectionStart();
+                caretOffsets[3 * i + 2] = caret.getSelectionEnd();
+            }
+        }
+
+        /**
+          Return true if the blocks to reformat are small enough to be computed on the event dispatch thread. Only the
+          lines around each caret are scanned, up to the size limit, unless the paragraph index is already built.
+        */
+
+        boolean isSmall()
+        {
+            findParagraphSource();
+            long size = 0;
+            for (int i = 0; i < caretOffsets.length; i += 3) {
+                int selectionLength = caretOffsets[i + 2] - caretOffsets[i + 1];
+                if (selectionLength == 0) {
+                    size += getParagraphLength(caretOffsets[i]);
+                } else {
+                    size += selectionLength;
+                }
+                if (size > SYNCHRONOUS_LIMIT) {
+                    return false;
+                }
+            }
+            return true;
         }
 
-        SelectionModel selectionModel = editor.getSelectionModel();
+        /**
+          Return the length of the paragraph containing an offset, which is the block reformatted for a caret with no
+          selection, or a length over the size limit if the paragraph is larger than that.
+        */
+
+        private int getParagraphLength(int offset)
+        {
+            int line = document.getLineNumber(offset);
+            if (isEmptyOrBlankLine(line)) {
+                return 0;
+            }
 
-        int startPosition;
-        int endPosition;
-        String reformattedText;
-        int newCaretPosition;
+            // The scan stops at the lines that contain the offsets just out of reach of the limit
+            int firstLine = document.getLineNumber(Math.max(offset - SYNCHRONOUS_LIMIT - 1, 0));
+            int lastLine = document.getLineNumber(Math.min(offset + SYNCHRONOUS_LIMIT + 1, document.getTextLength()));
+            int startOffset = document.getLineStartOffset(findStartLine(line, firstLine));
+            int endOffset = document.getLineEndOffset(findEndLine(line, lastLine));
+            return endOffset - startOffset;
+        }
 
-        if (selectionModel.hasSelection()) {
-            // We have something selected, use that
-            String bufferContent = editor.getDocument().getText();
+        boolean isStale()
+        {
+            return document.getModificationStamp() != modificationStamp;
+        }
 
-            // Compute start and end position for block
-            startPosition = bufferContent.lastIndexOf('\n', selectionModel.getSelectionStart() - 1) + 1;
-            int blockEnd = selectionModel.getSelectionEnd();
+        /**
+          Compute the replacement. Must be called in a read action.
 
-            // If the selection ends at the end of a line, exclude the terminating newline of the selection from the
-            // block. Otherwise, if the selection ends in the middle of a line, extend the block to include the rest of
-            // the line, excluding the terminating newline. The result should be that the end position of the block
-            // either points to a newline or points at the end of the buffer.
+          @return the replacement, or null if there is nothing to reformat or the document has changed.
+        */
 
-            if (blockEnd > 0 && bufferContent.charAt(blockEnd-1) == '\n') {
-                // exclude that last newline
-                blockEnd--;
-            } else {
-                // include the rest of the current line (up to the newline)
-                blockEnd = bufferContent.indexOf('\n', selectionModel.getSelectionEnd());
+        @Nullable Replacement compute()
+        {
+            if (isStale()) {
+                return null;
+            }
+            if (statistics != null) {
+                // The computation may be repeated after a cancellation
+                statistics.reset();
             }
-            endPosition = blockEnd == -1 ? bufferContent.length() : blockEnd;
+            long time = statistics != null ? System.nanoTime() : 0;
 
-            reformattedText = reformat(bufferContent.substring(startPosition, endPosition), lineWidth);
-            newCaretPosition = startPosition + reformattedText.length();
-        } else {
-            // Nothing selected, try to find "current block"
-            int currentCaretPosition = editor.getCaretModel().getOffset();
+            // Block detection and wrapping work directly on the document's immutable character sequence and line
+            // index. The document text is never copied, and is read once for all carets.
+            CharSequence bufferContent = document.getImmutableCharSequence();
+            findParagraphSource();
 
-            String bufferContent = editor.getDocument().getText();
-            int currentLineStart = bufferContent.lastIndexOf('\n', currentCaretPosition - 1) + 1;
-            int currentLineEnd = bufferContent.indexOf('\n', currentCaretPosition);
-            if (currentLineEnd == -1) {
-                currentLineEnd = bufferContent.length();
+            List<Block> blocks = new ArrayList<>();
+            int[] selectionEnds = new int[caretOffsets.length / 3];
+            for (int i = 0; i < caretOffsets.length; i += 3) {
+                selectionEnds[i / 3] = findBlocks(bufferContent, caretOffsets[i], caretOffsets[i + 1], caretOffsets[i + 2], blocks);
             }
-            String currentLine = bufferContent.substring(currentLineStart, currentLineEnd);
-            if (currentLineStart == currentLineEnd) {
-                return;
+            if (blocks.isEmpty()) {
+                return null;
             }
-            String currentLeftMargin = leftMargin(currentLine, false);
-
-            // Find start of block
-            int lineStart = currentLineStart;
-            int lineEnd = currentLineEnd;
-            while (true) {
-                if (lineStart == 0) {
-                    break;
-                }
-                if (!leftMargin(bufferContent.substring(lineStart, lineEnd), true)
-                        .equals(currentLeftMargin)) {
-                    // This is a "first line", don't go further up
-                    break;
-                }
-                int newLineEnd = lineStart - 1;
-                int newLineStart = bufferContent.lastIndexOf('\n', newLineEnd - 1) + 1;
-                if (newLineStart == newLineEnd) {
-                    break;
-                }
-                String newLine = bufferContent.substring(newLineStart, newLineEnd);
-                String leftMargin = leftMargin(newLine, false);
-                if (!currentLeftMargin.equals(leftMargin)) {
-                    break;
+            blocks = merge(blocks);
+            if (statistics != null) {
+                time = statistics.lap(Phase.BLOCK_DETECTION, time);
+            }
+
+            // Reformat the blocks, recording where the unchanged text ends up so that carets can be relocated. The
+            // document is not modified until the edits are applied, so the blocks are independent. A large selection
+            // is split into many paragraphs, which are distributed over the fork/join pool.
+            if (blocks.size() >= CONCURRENT_BLOCK_COUNT && getTotalLength(blocks) > SYNCHRONOUS_LIMIT
+                  && !ApplicationManager.getApplication().isDispatchThread()) {
+                // A wrapper keeps scratch state, so each worker thread has its own
+                ThreadLocal<ParagraphWrapper> wrappers = ThreadLocal.withInitial(this::createWrapper);
+                JobLauncher.getInstance().invokeConcurrentlyUnderProgress(blocks, ProgressManager.getInstance().getProgressIndicator(),
+                  block -> {
+                      block.wrap(bufferContent, wrappers.get(), statistics != null);
+                      return true;
+                  });
+            } else {
+                ParagraphWrapper wrapper = createWrapper();
+                for (Block block : blocks) {
+                    block.wrap(bufferContent, wrapper, statistics != null);
                 }
-                if (newLine.substring(leftMargin.length()).trim().isEmpty()) {
-                    break;
+            }
+            if (statistics != null) {
+                for (Block block : blocks) {
+                    statistics.addBlock(block.wrapStatistics);
                 }
-                lineStart = newLineStart;
-                lineEnd = newLineEnd;
+                time = statistics.lap(Phase.WRAPPING, time);
             }
-            startPosition = lineStart;
-
-            // Find end of block
-            lineStart = currentLineStart;
-            lineEnd = currentLineEnd;
-            while (true) {
-                if (lineEnd == bufferContent.length()) {
-                    break;
+
+            // Only the ranges that actually changed are replaced, so that the rest of each block (and anything
+            // attached to it, like folding regions and range markers) is left alone.
+            TextEdits edits = new TextEdits();
+            int shift = 0;
+            for (Block block : blocks) {
+                block.shift = shift;
+                if (block.text != null) {
+                    edits.addDifferences(bufferContent, block.start, block.end, block.text, 0, block.text.length(), block.offsetMap);
+                    shift += block.getNewLength() - (block.end - block.start);
                 }
-                int newLineStart = lineEnd + 1;
-                int newLineEnd = bufferContent.indexOf('\n', newLineStart);
-                if (newLineEnd == -1)
-                    newLineEnd = bufferContent.length();
-                if (newLineStart == newLineEnd) {
-                    break;
+            }
+
+            // Relocate every caret and selection endpoint in a single pass
+            int[] offsets = new int[caretOffsets.length];
+            for (int i = 0; i < offsets.length; i += 3) {
+                int selectionEnd = selectionEnds[i / 3];
+                if (selectionEnd >= 0) {
+                    // After formatting a selection, the caret is placed at the end of the reformatted text
+                    int index = findBlockIndex(blocks, selectionEnd);
+                    Block block = index >= 0 ? blocks.get(index) : null;
+                    int newCaretPosition = block != null && block.end == selectionEnd
+                      ? block.start + block.shift + block.getNewLength()
+                      : relocate(selectionEnd, blocks);
+                    offsets[i] = newCaretPosition;
+                    offsets[i + 1] = newCaretPosition;
+                    offsets[i + 2] = newCaretPosition;
+                } else {
+                    for (int j = i; j < i + 3; j++) {
+                        offsets[j] = relocate(caretOffsets[j], blocks);
+                    }
                 }
-                String newLine = bufferContent.substring(newLineStart, newLineEnd);
-                String leftMargin = leftMargin(newLine, false);
-                String firstLeftMargin = leftMargin(newLine, true);
-                if (!currentLeftMargin.equals(leftMargin) || !leftMargin.equals(firstLeftMargin)) {
-                    break;
+            }
+            if (statistics != null) {
+                statistics.lap(Phase.CARET_MAPPING, time);
+            }
+            return new Replacement(this, edits, offsets);
+        }
+
+        /**
+          Add the blocks to reformat for a caret: the paragraphs of the lines of its selection, or the paragraph
+          containing the caret. A selection is split into paragraphs by the same rules that find the paragraph at the
+          caret, so that the paragraphs (and bullet items) it contains are not merged.
+
+          @return the end of the lines of the selection, or -1 if there is no selection.
+        */
+
+        private int findBlocks(@NotNull CharSequence bufferContent,
+                               int caretOffset,
+                               int selectionStart,
+                               int selectionEnd,
+                               @NotNull List<Block> blocks)
+        {
+            if (selectionStart < selectionEnd) {
+                // We have something selected, use that
+                int blockEnd = selectionEnd;
+
+                // If the selection ends at the end of a line, exclude the terminating newline of the selection from
+                // the block. Otherwise, if the selection ends in the middle of a line, extend the block to include the
+                // rest of the line, excluding the terminating newline. The result should be that the end position of
+                // the block either points to a newline or points at the end of the buffer.
+
+                if (blockEnd > 0 && bufferContent.charAt(blockEnd-1) == '\n') {
+                    // exclude that last newline
+                    blockEnd--;
+                } else {
+                    // include the rest of the current line (up to the newline)
+                    blockEnd = document.getLineEndOffset(document.getLineNumber(blockEnd));
                 }
-                if (newLine.substring(leftMargin.length()).trim().isEmpty()) {
-                    break;
+
+                int lastLine = document.getLineNumber(blockEnd);
+                int line = document.getLineNumber(selectionStart);
+                while (line <= lastLine) {
+                    ProgressManager.checkCanceled();
+                    if (isEmptyOrBlankLine(line)) {
+                        line++;
+                        continue;
+                    }
+                    int endLine = findEndLine(line, lastLine);
+                    blocks.add(new Block(document.getLineStartOffset(line), document.getLineEndOffset(endLine)));
+                    line = endLine + 1;
                 }
-                lineStart = newLineStart;
-                lineEnd = newLineEnd;
+                return blockEnd;
             }
-            endPosition = lineEnd;
 
-            String text = bufferContent.substring(startPosition, endPosition);
-            text = addMarkerAtCaretPosition(text, currentCaretPosition - startPosition);
-            String reformattedTextWithMarkers = reformat(text, lineWidth);
-            newCaretPosition = startPosition + findMarker(reformattedTextWithMarkers);
-            reformattedText = removeMarker(reformattedTextWithMarkers);
+            // Nothing selected, try to find "current block"
+            int currentLine = document.getLineNumber(caretOffset);
+            int currentLineStart = document.getLineStartOffset(currentLine);
+            int currentLineEnd = document.getLineEndOffset(currentLine);
+            if (currentLineStart != currentLineEnd) {
+                int startPosition = document.getLineStartOffset(findStartLine(currentLine, 0));
+                int endPosition = document.getLineEndOffset(findEndLine(currentLine, document.getLineCount() - 1));
+                blocks.add(new Block(startPosition, endPosition));
+            }
+            return -1;
         }
 
-        CommandProcessor.getInstance().executeCommand(project, () -> ApplicationManager.getApplication().runWriteAction(() -> {
-            selectionModel.setSelection(startPosition, endPosition);
-            EditorModificationUtil.insertStringAtCaret(editor, reformattedText, true, false);
-            selectionModel.setSelection(newCaretPosition, newCaretPosition);
-            editor.getCaretModel().moveToOffset(newCaretPosition);
-        }), null, null);
-    }
+        private @NotNull ParagraphWrapper createWrapper()
+        {
+            ParagraphWrapper wrapper = new ParagraphWrapper(marginRecognizer, lineWidth);
+            wrapper.setCancellationCheck(ProgressManager::checkCanceled);
+            wrapper.setBalancedWordLimit(balancedWordLimit);
+            wrapper.setTextMeasure(measure);
+            wrapper.setHyphenator(hyphenator);
+            wrapper.setWrappedBlockCache(FormattingRules.getWrappedBlockCache());
+            return wrapper;
+        }
 
-    /**
-      Returns position of 'C' marker (taking into account escaped characters with 'E').
-    */
-    private int findMarker(String text)
-    {
-        int position = 0;
-        for (int i = 0; i < text.length(); i++) {
-            if (text.charAt(i) == 'E') {
-                i++;
-            } else {
-                if (text.charAt(i) == 'C')
-                    return position;
-            }
-            position++;
+        /**
+          Choose how paragraphs are found. The paragraph index of the document is used if it is already built, and is
+          built if needed off the event dispatch thread. On the event dispatch thread, building it would scan the
+          whole document, so the lines around each block are scanned instead. Must be called in a read action.
+        */
+
+        private void findParagraphSource()
+        {
+            paragraphIndex = ApplicationManager.getApplication().isDispatchThread()
+              ? DocumentParagraphIndex.getIfBuilt(document, marginRecognizer)
+              : DocumentParagraphIndex.get(document, marginRecognizer);
+            paragraphFinder = paragraphIndex == null
+              ? new ParagraphFinder(document.getImmutableCharSequence(), new DocumentLineIndex(document), marginRecognizer)
+              : null;
         }
-        return position;
-    }
 
-    private String removeMarker(String text)
-    {
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < text.length(); i++) {
-            if (text.charAt(i) == 'C') {
-                continue;
-            }
-            if (text.charAt(i) == 'E') {
-                i++;
-            }
-            sb.append(text.charAt(i));
+        private boolean isEmptyOrBlankLine(int line)
+        {
+            return paragraphIndex != null
+              ? paragraphIndex.isEmptyLine(line) || paragraphIndex.isBlankLine(line)
+              : paragraphFinder.isEmptyLine(line) || paragraphFinder.isBlankLine(line);
         }
-        return sb.toString();
-    }
 
-    /**
-        Insert a 'C' at caret position. We escape with the 'E' character.
-    */
-    private String addMarkerAtCaretPosition(String text, int position)
-    {
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < text.length(); i++) {
-            // Mark position
-            if (i == position) {
-                sb.append('C');
-            }
-            // Escape #
-            if (text.charAt(i) == 'C' || text.charAt(i) == 'E') {
-                sb.append('E');
-            }
-            sb.append(text.charAt(i));
+        /**
+          Return the first line of the paragraph containing a (non-empty) line, but not before the specified line.
+        */
+
+        private int findStartLine(int line, int firstLine)
+        {
+            return paragraphIndex != null
+              ? Math.max(paragraphIndex.findStartLine(line), firstLine)
+              : paragraphFinder.findStartLine(line, firstLine);
+        }
+
+        /**
+          Return the last line of the paragraph containing a (non-empty) line, but not after the specified line.
+        */
+
+        private int findEndLine(int line, int lastLine)
+        {
+            return paragraphIndex != null
+              ? Math.min(paragraphIndex.findEndLine(line), lastLine)
+              : paragraphFinder.findEndLine(line, lastLine);
         }
-        return sb.toString();
     }
 
     /**
-      Reformat the specified text so that its width does not exceed the specified width.
+      A range of the document that is reformatted as one paragraph, and its reformatted text.
     */
 
-    private @NotNull String reformat(String text, int width)
+    private static final class Block
     {
-        // Compute the list of words and identify left margins. The first line of formatted text may be given a
-        // different left margin than the remaining lines. In particular, lines other than the first line will not
-        // contain bullet text. If the input text has more than one line, the left margin of the second line is used to
-        // determine the left margin of lines other than the first line. Otherwise, the left margin of the first line
-        // is used.
-
-        List<String> words = new ArrayList<>();
-        String firstLineMargin = null;
-        String secondLineMargin = null;
-
-        StringTokenizer lineTokenizer = new StringTokenizer(text, "\n\r");
-        while (lineTokenizer.hasMoreTokens()) {
-
-            // Remove left margin from line
-            String line = lineTokenizer.nextToken();
-            String leftMargin = leftMargin(line, firstLineMargin == null);
-            line = line.substring(leftMargin.length());
-
-            if (firstLineMargin == null) {
-                firstLineMargin = leftMargin;
-            } else if (secondLineMargin == null) {
-                secondLineMargin = leftMargin;
-            }
+        final int start;
+        int end;
 
-            // Add words for this line to the list of words
-            StringTokenizer wordTokenizer = new StringTokenizer(line);
-            while (wordTokenizer.hasMoreTokens()) {
-                words.add(wordTokenizer.nextToken());
-            }
+        // The reformatted text, or null if the block is already formatted
+        @Nullable StringBuilder text;
+        OffsetMap offsetMap;
+        WrapStatistics wrapStatistics;
+
+        // The total change in length of the blocks before this one
+        int shift;
+
+        Block(int start, int end)
+        {
+            this.start = start;
+            this.end = end;
         }
 
-        if (firstLineMargin == null) {
-            firstLineMargin = "";
+        void wrap(@NotNull CharSequence bufferContent, @NotNull ParagraphWrapper wrapper, boolean collectStatistics)
+        {
+            wrapStatistics = collectStatistics ? new WrapStatistics() : null;
+            wrapper.setStatistics(wrapStatistics);
+            if (wrapper.isWrapped(bufferContent, start, end)) {
+                text = null;
+                return;
+            }
+            offsetMap = new OffsetMap();
+            text = new StringBuilder(end - start + 16);
+            wrapper.wrap(bufferContent, start, end, text, offsetMap);
         }
 
-        if (secondLineMargin == null) {
-            secondLineMargin = leftMargin(firstLineMargin, false);
+        int getNewLength()
+        {
+            return text != null ? text.length() : end - start;
         }
 
-        int firstLineMarginWidth = getSingleLineTextWidth(firstLineMargin);
-        int otherLinesMarginWidth = getSingleLineTextWidth(secondLineMargin);
+        /**
+          Return the offset in the reformatted block of a document offset within the block.
+        */
 
-        StringBuilder sb = new StringBuilder();
-        sb.append(firstLineMargin);
+        int map(int offset)
+        {
+            return text != null ? offsetMap.map(offset) : offset - start;
+        }
+    }
 
-        int currentLineWidth = firstLineMarginWidth;
-        int currentLineMarginWidth = firstLineMarginWidth;
+    /**
+      Sort blocks by position and merge the blocks that overlap.
+    */
 
-        while (!words.isEmpty()) {
-            String word = words.get(0);
-            if (currentLineWidth + 1 + word.length() <= width) {
-                // Enough space to add word to this line
-                if (currentLineWidth > currentLineMarginWidth) {
-                    sb.append(' ');
-                    currentLineWidth++;
-                }
-                sb.append(word);
-                currentLineWidth += word.length();
-                words.remove(0);
-            } else if (currentLineWidth == currentLineMarginWidth && word.length() > width - currentLineMarginWidth) {
-                // Word too long, but we are at the beginning of the line, so place it anyway
-                sb.append(word);
-                currentLineWidth += word.length();
-                words.remove(0);
+    private static @NotNull List<Block> merge(@NotNull List<Block> blocks)
+    {
+        blocks.sort(Comparator.comparingInt(block -> block.start));
+        List<Block> merged = new ArrayList<>(blocks.size());
+        for (Block block : blocks) {
+            Block last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && block.start <= last.end) {
+                last.end = Math.max(last.end, block.end);
             } else {
-                // Not enough space, create new line
-                sb.append('\n');
-                sb.append(secondLineMargin);
-                currentLineWidth = otherLinesMarginWidth;
-                currentLineMarginWidth = otherLinesMarginWidth;
+                merged.add(block);
             }
         }
+        return merged;
+    }
 
-        // Add final end-line if there was one originally
-        if (text.endsWith("\n")) {
-            sb.append("\n");
+    private static long getTotalLength(@NotNull List<Block> blocks)
+    {
+        long length = 0;
+        for (Block block : blocks) {
+            length += block.end - block.start;
         }
-
-        return sb.toString();
+        return length;
     }
 
     /**
-      Identify the left margin of the specified text line. The left margin might include a comment starting token
-      or an asterisk or bullet text, depending upon the file type. If {@code isFirstLine} is false, bullet text is
-      converted to spaces.
-
-      @return the left margin text, with bullets possibly converted to an equivalent number of spaces.
+      The result of the computation: the edits to apply and the new caret positions.
     */
 
-    private @NotNull String leftMargin(String text, boolean isFirstLine)
+    private static final class Replacement
     {
-        StringTokenizer lineTokenizer = new StringTokenizer(text, "\n\r");
-        String firstLine = lineTokenizer.nextToken();
-
-        // Compute margin on selected line
-        StringBuilder margin = new StringBuilder();
-        boolean foundJavaStar = false;
-        boolean foundJavaSlashSlash = false;
-        boolean foundTextBullet = false;
-
-        for (int i = 0; i < firstLine.length(); i++) {
-            char c = firstLine.charAt(i);
-            if (c == ' ' || c == '\t') {
-                margin.append(c);
-            } else if (fileType == StdFileTypes.JAVA && !foundJavaStar && c == '*') {
-                // Ignore first '*' if we are in Java mode
-                foundJavaStar = true;
-                margin.append(c);
-            } else if (fileType == StdFileTypes.JAVA && !foundJavaSlashSlash
-                    && c == '/' && i < firstLine.length() - 1 && firstLine.charAt(i + 1) == '/') {
-                // Ignore first "//" if we are in Java mode
-                foundJavaSlashSlash = true;
-                margin.append("//");
-                i++;
-            } else if (!foundTextBullet && (c == '#' || c == '*' || c == '-' || c == '@')) {
-                // Ignore "bullets" on first file
-                foundTextBullet = true;
-                margin.append(isFirstLine ? c : ' ');
-            } else if (!foundTextBullet) {
-                // Try to match more complex enumerations, like 1) or (a)
-                String rest = firstLine.substring(i);
-                Matcher matcher;
-                matcher = Pattern.compile("(\\(?[0-9][0-9]?\\)).*").matcher(rest);
-                if (!matcher.matches())
-                    matcher = Pattern.compile("(\\(?[a-z][a-z]?\\)).*").matcher(rest);
-                if (!matcher.matches())
-                    matcher = Pattern.compile("(\\(?[A-Z][A-Z]?\\)).*").matcher(rest);
-                if (matcher.matches()) {
-                    foundTextBullet = true;
-                    String matchedText = matcher.group(1);
-                    if (isFirstLine) {
-                        margin.append(matchedText);
-                    } else {
-                        margin.append(" ".repeat(matchedText.length()));
-                    }
-                    i = i + matchedText.length() - 1;
-                } else {
-                    break;
-                }
+        final Snapshot snapshot;
+        final TextEdits edits;
+        final int[] caretOffsets;
+
+        Replacement(@NotNull Snapshot snapshot, @NotNull TextEdits edits, int[] caretOffsets)
+        {
+            this.snapshot = snapshot;
+            this.edits = edits;
+            this.caretOffsets = caretOffsets;
+        }
+
+        /**
+          Apply the edits and move the carets in one command. Must be called on the event dispatch thread, while the
+          document is unchanged since the snapshot was taken.
+        */
+
+        void apply()
+        {
+            Editor editor = snapshot.editor;
+            Document document = snapshot.document;
+            FormattingStatistics.Invocation statistics = snapshot.statistics;
+            long time = statistics != null ? System.nanoTime() : 0;
+            if (edits.isEmpty()) {
+                // The text is already formatted. Only the carets move, which needs no command, so the document is not
+                // marked as modified and there is nothing to undo.
+                setCarets(editor);
             } else {
-                break;
+                CommandProcessor.getInstance().executeCommand(snapshot.project, () -> ApplicationManager.getApplication().runWriteAction(() -> {
+                    applyEdits(document, edits);
+                    setCarets(editor);
+                }), null, null);
+            }
+            if (statistics != null) {
+                statistics.lap(Phase.DOCUMENT_WRITE, time);
+                statistics.finish();
+            }
+        }
+
+        private void setCarets(@NotNull Editor editor)
+        {
+            List<CaretState> caretStates = new ArrayList<>(caretOffsets.length / 3);
+            for (int i = 0; i < caretOffsets.length; i += 3) {
+                caretStates.add(new CaretState(editor.offsetToLogicalPosition(caretOffsets[i]),
+                                               editor.offsetToLogicalPosition(caretOffsets[i + 1]),
+                                               editor.offsetToLogicalPosition(caretOffsets[i + 2])));
             }
+            editor.getCaretModel().setCaretsAndSelections(caretStates);
         }
+    }
 
-        return margin.toString();
+    /**
+      Apply edits to the document, from last to first so that the offsets of the remaining edits stay valid.
+    */
+
+    static void applyEdits(Document document, TextEdits edits)
+    {
+        for (int i = edits.size() - 1; i >= 0; i--) {
+            document.replaceString(edits.getStart(i), edits.getEnd(i), edits.getReplacement(i));
+        }
     }
 
     /**
-      Return the width of the text, taking tabs into account. Only single lines are supported.
+      Return the offset after reformatting of a document offset. Offsets between blocks move by the change in the
+      length of the blocks before them, and offsets within a block are mapped.
     */
 
-    private int getSingleLineTextWidth(String text)
+    private static int relocate(int offset, @NotNull List<Block> blocks)
     {
-        int col = 0;
+        int index = findBlockIndex(blocks, offset);
+        if (index < 0) {
+            return offset;
+        }
+        Block block = blocks.get(index);
+        if (offset > block.end) {
+            return offset + block.shift + block.getNewLength() - (block.end - block.start);
+        }
+        return block.start + block.shift + block.map(offset);
+    }
 
-        int count = text.length();
+    /**
+      Return the index of the last of the sorted blocks that starts at or before the specified offset, or -1 if there
+      is none.
+    */
 
-        for (int i = 0; i < count; i++) {
-            char ch = text.charAt(i);
-            if (ch == '\t') {
-                while ((++col % tabSize) != 0);
-            } else if (ch == '\n') {
-                break;
+    private static int findBlockIndex(@NotNull List<Block> blocks, int offset)
+    {
+        int low = 0;
+        int high = blocks.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (blocks.get(middle).start <= offset) {
+                low = middle + 1;
             } else {
-                col++;
+                high = middle - 1;
             }
         }
-
-        return col;
+        return low - 1;
     }
 }
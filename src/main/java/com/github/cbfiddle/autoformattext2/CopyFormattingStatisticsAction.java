@@ -0,0 +1,36 @@
+package com.github.cbfiddle.autoformattext2;
+
+import java.awt.datatransfer.StringSelection;
+
+import com.intellij.openapi.actionSystem.ActionUpdateThread;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.ide.CopyPasteManager;
+import org.jetbrains.annotations.NotNull;
+
+/**
+  Copies a summary of the timings of recent Format Text invocations to the clipboard. The action is available only
+  when statistics are being collected.
+*/
+
+public class CopyFormattingStatisticsAction
+  extends AnAction
+{
+    @Override
+    public void update(@NotNull AnActionEvent event)
+    {
+        event.getPresentation().setEnabledAndVisible(AppSettingsState.getInstance().collectStatistics);
+    }
+
+    @Override
+    public @NotNull ActionUpdateThread getActionUpdateThread()
+    {
+        return ActionUpdateThread.BGT;
+    }
+
+    public void actionPerformed(@NotNull AnActionEvent event)
+    {
+        String summary = FormattingStatistics.getInstance().summarize();
+        CopyPasteManager.getInstance().setContents(new StringSelection(summary));
+    }
+}
@@ -0,0 +1,46 @@
+package com.github.cbfiddle.autoformattext2;
+
+import com.github.cbfiddle.autoformattext2.engine.LineIndex;
+import com.intellij.openapi.editor.Document;
+import org.jetbrains.annotations.NotNull;
+
+/**
+  Exposes the line structure that a document already maintains to the formatting engine, so that the engine does
+  not have to scan the document for line separators.
+*/
+
+final class DocumentLineIndex
+  implements LineIndex
+{
+    private final Document document;
+
+    DocumentLineIndex(@NotNull Document document)
+    {
+        this.document = document;
+    }
+
+    @Override
+    public int getLineCount()
+    {
+        // The engine expects an empty text to have one (empty) line
+        return Math.max(1, document.getLineCount());
+    }
+
+    @Override
+    public int getLineNumber(int offset)
+    {
+        return document.getLineNumber(offset);
+    }
+
+    @Override
+    public int getLineStartOffset(int line)
+    {
+        return document.getTextLength() == 0 ? 0 : document.getLineStartOffset(line);
+    }
+
+    @Override
+    public int getLineEndOffset(int line)
+    {
+        return document.getTextLength() == 0 ? 0 : document.getLineEndOffset(line);
+    }
+}
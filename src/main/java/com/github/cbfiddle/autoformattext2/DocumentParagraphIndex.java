@@ -0,0 +1,127 @@
+package com.github.cbfiddle.autoformattext2;
+
+import com.github.cbfiddle.autoformattext2.engine.MarginRecognizer;
+import com.github.cbfiddle.autoformattext2.engine.ParagraphIndex;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.event.DocumentEvent;
+import com.intellij.openapi.editor.event.DocumentListener;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.util.Key;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+  Keeps a {@link ParagraphIndex} for a document, attached to the document as user data, so that repeated reformats
+  in the same document do not rescan it. The index is built on first use and then kept up to date by a document
+  listener, which reclassifies only the edited lines. A bulk update discards the index; it is rebuilt when it is next
+  needed. The index is evicted by {@link ParagraphIndexEvictor} when the last editor of the document is released.
+*/
+
+final class DocumentParagraphIndex
+  implements DocumentListener
+{
+    private static final Key<DocumentParagraphIndex> KEY = Key.create("AutoFormatText2.ParagraphIndex");
+
+    private final Document document;
+    private final Disposable disposable = Disposer.newDisposable("AutoFormatText2 paragraph index");
+
+    // Null when the index must be rebuilt
+    private @Nullable ParagraphIndex index;
+
+    // The lines replaced by the change in progress
+    private int changeStartLine;
+    private int changeOldEndLine;
+
+    private DocumentParagraphIndex(@NotNull Document document)
+    {
+        this.document = document;
+    }
+
+    /**
+      Return the up to date paragraph index of a document. Must be called in a read action. The index must not be
+      used after the read action ends.
+    */
+
+    static @NotNull ParagraphIndex get(@NotNull Document document, @NotNull MarginRecognizer marginRecognizer)
+    {
+        DocumentParagraphIndex holder;
+        synchronized (KEY) {
+            holder = document.getUserData(KEY);
+            if (holder == null) {
+                holder = new DocumentParagraphIndex(document);
+                document.putUserData(KEY, holder);
+                document.addDocumentListener(holder, holder.disposable);
+            }
+        }
+        return holder.getIndex(marginRecognizer);
+    }
+
+    /**
+      Return the paragraph index of a document if it is already built and up to date, or null if it would have to be
+      built. Must be called in a read action. The index must not be used after the read action ends.
+    */
+
+    static @Nullable ParagraphIndex getIfBuilt(@NotNull Document document, @NotNull MarginRecognizer marginRecognizer)
+    {
+        DocumentParagraphIndex holder;
+        synchronized (KEY) {
+            holder = document.getUserData(KEY);
+        }
+        return holder != null ? holder.getBuiltIndex(marginRecognizer) : null;
+    }
+
+    /**
+      Discard the index of a document, if it has one.
+    */
+
+    static void evict(@NotNull Document document)
+    {
+        DocumentParagraphIndex holder;
+        synchronized (KEY) {
+            holder = document.getUserData(KEY);
+            document.putUserData(KEY, null);
+        }
+        if (holder != null) {
+            Disposer.dispose(holder.disposable);
+        }
+    }
+
+    private synchronized @NotNull ParagraphIndex getIndex(@NotNull MarginRecognizer marginRecognizer)
+    {
+        // The tab size does not affect paragraph boundaries, but the comment prefixes and bullets do
+        if (index == null || !index.getMarginRecognizer().hasSameSyntax(marginRecognizer)) {
+            index = new ParagraphIndex(marginRecognizer, document.getImmutableCharSequence(), new DocumentLineIndex(document));
+        }
+        return index;
+    }
+
+    private synchronized @Nullable ParagraphIndex getBuiltIndex(@NotNull MarginRecognizer marginRecognizer)
+    {
+        return index != null && index.getMarginRecognizer().hasSameSyntax(marginRecognizer) ? index : null;
+    }
+
+    @Override
+    public synchronized void beforeDocumentChange(@NotNull DocumentEvent event)
+    {
+        if (index != null) {
+            changeStartLine = document.getLineNumber(event.getOffset());
+            changeOldEndLine = document.getLineNumber(event.getOffset() + event.getOldLength());
+        }
+    }
+
+    @Override
+    public synchronized void documentChanged(@NotNull DocumentEvent event)
+    {
+        if (index != null) {
+            int newEndLine = document.getLineNumber(event.getOffset() + event.getNewLength());
+            index.update(document.getImmutableCharSequence(), new DocumentLineIndex(document), changeStartLine, changeOldEndLine, newEndLine);
+        }
+    }
+
+    @Override
+    public synchronized void bulkUpdateStarting(@NotNull Document document)
+    {
+        index = null;
+    }
+}
@@ -0,0 +1,98 @@
+package com.github.cbfiddle.autoformattext2;
+
+import com.github.cbfiddle.autoformattext2.engine.CommentOracle;
+import com.github.cbfiddle.autoformattext2.engine.Hyphenator;
+import com.github.cbfiddle.autoformattext2.engine.LineRangeSet;
+import com.github.cbfiddle.autoformattext2.engine.MarginRecognizer;
+import com.github.cbfiddle.autoformattext2.engine.TextEdits;
+import com.github.cbfiddle.autoformattext2.engine.TextMeasure;
+import com.github.cbfiddle.autoformattext2.engine.TextReflower;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.util.DocumentUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+  Reformats every paragraph of a document, or only the comment paragraphs, using the same engine as the command
+  line formatter. The reformatting can be limited to the paragraphs that contain a set of lines.
+*/
+
+final class DocumentReflower
+{
+    private final TextReflower reflower;
+
+    /**
+      Create a document reflower.
+      @param commentsOnly If true, only paragraphs whose margin contains a comment token are reformatted.
+      @param balancedWordLimit The number of words up to which paragraphs are wrapped in balanced mode, or 0.
+    */
+
+    DocumentReflower(@NotNull MarginRecognizer marginRecognizer, int lineWidth, boolean commentsOnly, int balancedWordLimit)
+    {
+        this.reflower = new TextReflower(marginRecognizer, lineWidth, commentsOnly);
+        reflower.setBalancedWordLimit(balancedWordLimit);
+        reflower.setWrappedBlockCache(FormattingRules.getWrappedBlockCache());
+        reflower.setCancellationCheck(ProgressManager::checkCanceled);
+    }
+
+    /**
+      Specify how comments are identified when only comment paragraphs are reformatted. If null, a paragraph is a
+      comment if its margin contains a comment prefix.
+    */
+
+    void setCommentOracle(@Nullable CommentOracle commentOracle)
+    {
+        reflower.setCommentOracle(commentOracle);
+    }
+
+    /**
+      Measure words and margins with the specified measure. The default measure is display columns.
+    */
+
+    void setTextMeasure(@NotNull TextMeasure measure)
+    {
+        reflower.setTextMeasure(measure);
+    }
+
+    /**
+      Hyphenate words that do not fit on a line using the specified hyphenator. By default, words are not hyphenated.
+    */
+
+    void setHyphenator(@Nullable Hyphenator hyphenator)
+    {
+        reflower.setHyphenator(hyphenator);
+    }
+
+    /**
+      Compute the edits that reformat the document. Must be called in a read action.
+    */
+
+    @NotNull TextEdits computeEdits(@NotNull Document document)
+    {
+        return reflower.computeEdits(document.getImmutableCharSequence(), new DocumentLineIndex(document));
+    }
+
+    /**
+      Compute the edits that reformat the paragraphs of the document that contain one of the specified lines. Must be
+      called in a read action.
+    */
+
+    @NotNull TextEdits computeEdits(@NotNull Document document, @NotNull LineRangeSet lines)
+    {
+        return reflower.computeEdits(document.getImmutableCharSequence(), new DocumentLineIndex(document), lines);
+    }
+
+    /**
+      Apply edits to the document in bulk update mode, so that highlighting and other listeners process the change
+      once. Must be called in a write action.
+    */
+
+    static void applyInBulk(@NotNull Document document, @NotNull TextEdits edits)
+    {
+        if (edits.isEmpty()) {
+            return;
+        }
+        DocumentUtil.executeInBulk(document, () -> AutoFormatTextActionProcessor.applyEdits(document, edits));
+    }
+}
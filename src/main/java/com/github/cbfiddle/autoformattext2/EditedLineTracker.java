@@ -0,0 +1,65 @@
+package com.github.cbfiddle.autoformattext2;
+
+import com.github.cbfiddle.autoformattext2.engine.LineRangeSet;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.event.DocumentEvent;
+import com.intellij.openapi.editor.event.DocumentListener;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.text.StringUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+  Records the lines of each file document that were edited since it was last saved, when formatting on save is
+  enabled. The lines are kept in a {@link LineRangeSet} attached to the document as user data, which is cleared by
+  {@link FormatOnSaveListener} when the document is saved. Recording an edit costs a few array operations; the text
+  of the document is not read.
+  <p>
+  Documents are only changed on the event dispatch thread, so the range sets are not synchronized.
+*/
+
+public final class EditedLineTracker
+  implements DocumentListener
+{
+    private static final Key<LineRangeSet> KEY = Key.create("AutoFormatText2.EditedLines");
+
+    /**
+      Return the lines of a document edited since it was last saved, or null if none were recorded.
+    */
+
+    static @Nullable LineRangeSet getEditedLines(@NotNull Document document)
+    {
+        return document.getUserData(KEY);
+    }
+
+    static void clear(@NotNull Document document)
+    {
+        document.putUserData(KEY, null);
+    }
+
+    @Override
+    public void documentChanged(@NotNull DocumentEvent event)
+    {
+        if (!AppSettingsState.getInstance().formatOnSave) {
+            return;
+        }
+
+        Document document = event.getDocument();
+        LineRangeSet editedLines = document.getUserData(KEY);
+        if (editedLines == null) {
+            // Documents that are not saved to a file, like consoles, are not tracked
+            if (FileDocumentManager.getInstance().getFile(document) == null) {
+                return;
+            }
+            editedLines = new LineRangeSet();
+            document.putUserData(KEY, editedLines);
+        }
+
+        // The replaced text is counted, rather than asking for the line of its end before the change
+        int startLine = document.getLineNumber(event.getOffset());
+        int oldEndLine = startLine + StringUtil.countNewLines(event.getOldFragment());
+        int newEndLine = document.getLineNumber(event.getOffset() + event.getNewLength());
+        editedLines.update(startLine, oldEndLine, newEndLine);
+    }
+}
@@ -0,0 +1,19 @@
+package com.github.cbfiddle.autoformattext2;
+
+import com.intellij.openapi.editor.colors.EditorColorsListener;
+import com.intellij.openapi.editor.colors.EditorColorsScheme;
+import org.jetbrains.annotations.Nullable;
+
+/**
+  Discards the cached character widths when the editor color scheme, which includes the editor fonts, changes.
+*/
+
+public final class EditorFontListener
+  implements EditorColorsListener
+{
+    @Override
+    public void globalSchemeChange(@Nullable EditorColorsScheme scheme)
+    {
+        EditorTextMeasure.clearCaches();
+    }
+}
@@ -0,0 +1,132 @@
+package com.github.cbfiddle.autoformattext2;
+
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.github.cbfiddle.autoformattext2.engine.TextMeasure;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.colors.EditorFontType;
+import com.intellij.util.ui.UIUtil;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.JComponent;
+
+/**
+  Measures text in pixels, as the editor renders it: each character is measured with the font metrics of the plain
+  editor font of the color scheme or, if that font cannot display it, of the same font with the fallback fonts of the
+  platform. Measuring a character is slow, so the widths are cached. There is one cache for each font; as the editor
+  font includes its size, zooming selects another cache.
+  <p>
+  The widths of the BMP characters are kept in pages of 256 characters, allocated when a character of the page is first
+  measured. Supplementary characters, which are rare, are measured each time. A measure may be used by several
+  threads: a width computed twice is the same, so races to store it are harmless. Measures of the same font are
+  equal, so that the paragraphs known to be formatted are still recognized after the caches are cleared.
+*/
+
+final class EditorTextMeasure
+  implements TextMeasure
+{
+    private static final int MAX_CACHED_FONTS = 16;
+
+    private static final Map<Font,EditorTextMeasure> measures = new ConcurrentHashMap<>();
+
+    private final Font font;
+    private final FontMetrics metrics;
+    private final FontMetrics fallbackMetrics;
+    private final int spaceWidth;
+
+    // The width of each character plus one, so that zero means not yet measured
+    private final int[][] pages = new int[256][];
+
+    private EditorTextMeasure(@NotNull Font font, @NotNull JComponent component)
+    {
+        this.font = font;
+        this.metrics = component.getFontMetrics(font);
+        this.fallbackMetrics = component.getFontMetrics(UIUtil.getFontWithFallback(font));
+        this.spaceWidth = Math.max(measure(' '), 1);
+    }
+
+    /**
+      Return the measure for the current font of the specified editor. Must be called in the event dispatch thread.
+    */
+
+    static @NotNull EditorTextMeasure forEditor(@NotNull Editor editor)
+    {
+        Font font = editor.getColorsScheme().getFont(EditorFontType.PLAIN);
+        EditorTextMeasure measure = measures.get(font);
+        if (measure == null) {
+            if (measures.size() >= MAX_CACHED_FONTS) {
+                measures.clear();
+            }
+            measure = new EditorTextMeasure(font, editor.getContentComponent());
+            measures.put(font, measure);
+        }
+        return measure;
+    }
+
+    /**
+      Discard the cached widths. Called when the editor fonts change.
+    */
+
+    static void clearCaches()
+    {
+        measures.clear();
+    }
+
+    @Override
+    public int getWidth(@NotNull CharSequence text, int start, int end)
+    {
+        int width = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(text.charAt(i + 1))) {
+                width += measure(Character.toCodePoint(c, text.charAt(++i)));
+                continue;
+            }
+            int[] page = pages[c >>> 8];
+            if (page == null) {
+                page = new int[256];
+                pages[c >>> 8] = page;
+            }
+            int cached = page[c & 0xff];
+            if (cached == 0) {
+                cached = measure(c) + 1;
+                page[c & 0xff] = cached;
+            }
+            width += cached - 1;
+        }
+        return width;
+    }
+
+    @Override
+    public int getSpaceWidth()
+    {
+        return spaceWidth;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof EditorTextMeasure)) {
+            return false;
+        }
+        EditorTextMeasure other = (EditorTextMeasure) o;
+        return font.equals(other.font) && metrics.getFontRenderContext().equals(other.metrics.getFontRenderContext());
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return font.hashCode() * 31 + metrics.getFontRenderContext().hashCode();
+    }
+
+    private int measure(int codePoint)
+    {
+        return font.canDisplay(codePoint) ? metrics.charWidth(codePoint) : fallbackMetrics.charWidth(codePoint);
+    }
+}
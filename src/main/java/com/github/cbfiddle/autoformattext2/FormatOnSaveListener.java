@@ -0,0 +1,122 @@
+package com.github.cbfiddle.autoformattext2;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.cbfiddle.autoformattext2.engine.LineRangeSet;
+import com.github.cbfiddle.autoformattext2.engine.TextEdits;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.command.CommandProcessor;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.EditorFactory;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.fileEditor.FileDocumentManagerListener;
+import com.intellij.openapi.fileTypes.FileType;
+import com.intellij.openapi.fileTypes.FileTypeManager;
+import com.intellij.openapi.fileTypes.FileTypes;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+  Reformats the paragraphs edited since the last save when documents are saved, if enabled in the settings. Only the
+  paragraphs that contain a line recorded by {@link EditedLineTracker} are reformatted: the comment paragraphs, or
+  every paragraph in a plain text file, as by the Format All Comments in File action. The cost of a save therefore
+  depends on the size of the edits, not on the size of the files.
+  <p>
+  When all documents are saved, the edits of every document are computed first and then applied in one command. A
+  document saved on its own is reformatted in a command of its own.
+*/
+
+public final class FormatOnSaveListener
+  implements FileDocumentManagerListener
+{
+    private static final String COMMAND_NAME = "Format Edited Text on Save";
+
+    @Override
+    public void beforeAllDocumentsSaving()
+    {
+        format(FileDocumentManager.getInstance().getUnsavedDocuments());
+    }
+
+    @Override
+    public void beforeDocumentSaving(@NotNull Document document)
+    {
+        // Nothing is recorded for a document that was just reformatted by beforeAllDocumentsSaving
+        format(new Document[] {document});
+    }
+
+    @Override
+    public void fileContentReloaded(@NotNull VirtualFile file, @NotNull Document document)
+    {
+        EditedLineTracker.clear(document);
+    }
+
+    private static void format(@NotNull Document[] documents)
+    {
+        boolean enabled = AppSettingsState.getInstance().formatOnSave;
+        List<Document> changedDocuments = new ArrayList<>();
+        List<TextEdits> changes = new ArrayList<>();
+        for (Document document : documents) {
+            LineRangeSet editedLines = EditedLineTracker.getEditedLines(document);
+            if (editedLines == null) {
+                continue;
+            }
+            TextEdits edits = enabled ? computeEdits(document, editedLines) : null;
+            if (edits != null && !edits.isEmpty()) {
+                changedDocuments.add(document);
+                changes.add(edits);
+            }
+            EditedLineTracker.clear(document);
+        }
+        if (changedDocuments.isEmpty()) {
+            return;
+        }
+
+        CommandProcessor.getInstance().executeCommand(null, () -> ApplicationManager.getApplication().runWriteAction(() -> {
+            for (int i = 0; i < changedDocuments.size(); i++) {
+                AutoFormatTextActionProcessor.applyEdits(changedDocuments.get(i), changes.get(i));
+            }
+        }), COMMAND_NAME, null);
+
+        // The reformatted lines were recorded as edits, but they are about to be saved
+        for (Document document : changedDocuments) {
+            EditedLineTracker.clear(document);
+        }
+    }
+
+    /**
+      Compute the edits that reformat the edited paragraphs of a document, using the settings of an editor of the
+      document.
+
+      @return the edits, or null if the document is not to be reformatted.
+    */
+
+    private static @Nullable TextEdits computeEdits(@NotNull Document document, @NotNull LineRangeSet editedLines)
+    {
+        VirtualFile virtualFile = FileDocumentManager.getInstance().getFile(document);
+        Editor[] editors = EditorFactory.getInstance().getEditors(document);
+        if (virtualFile == null || editors.length == 0 || !document.isWritable()) {
+            return null;
+        }
+
+        Editor editor = editors[0];
+        Project project = editor.getProject();
+        FileType fileType = FileTypeManager.getInstance().getFileTypeByFile(virtualFile);
+        FormattingRules rules = FormattingRules.forFileType(fileType);
+        if (!rules.isEnabled()) {
+            return null;
+        }
+        boolean commentsOnly = fileType != FileTypes.PLAIN_TEXT;
+        DocumentReflower reflower = new DocumentReflower(rules.getMarginRecognizer(editor, project), rules.getLineWidth(editor, project),
+                                                         commentsOnly, rules.getBalancedWordLimit());
+        reflower.setTextMeasure(rules.getTextMeasure(editor));
+        reflower.setHyphenator(rules.getHyphenator());
+        if (commentsOnly) {
+            reflower.setCommentOracle(HighlighterCommentOracle.forEditor(editor, project, virtualFile));
+        }
+        return reflower.computeEdits(document, editedLines);
+    }
+}
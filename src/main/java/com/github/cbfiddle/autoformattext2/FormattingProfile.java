@@ -0,0 +1,82 @@
+package com.github.cbfiddle.autoformattext2;
+
+import java.util.Objects;
+
+import com.github.cbfiddle.autoformattext2.engine.MarginRecognizer;
+import org.jetbrains.annotations.NotNull;
+
+/**
+  The formatting settings for the files of one file type, as stored in the settings and edited in the settings table.
+  A profile is compiled into {@link FormattingRules} when it is first used.
+*/
+
+final class FormattingProfile
+{
+    /**
+      The name of the file type ({@code FileType.getName()}).
+    */
+
+    public String fileType = "";
+
+    /**
+      The line width, or 0 to use the right margin.
+    */
+
+    public int lineWidth = 0;
+
+    /**
+      The characters recognized as bullets.
+    */
+
+    public String bullets = MarginRecognizer.DEFAULT_BULLETS;
+
+    /**
+      The comment prefixes recognized in margins, separated by spaces, or empty to use those of the language.
+    */
+
+    public String commentPrefixes = "";
+
+    public boolean balancedWrapping = false;
+
+    /**
+      If false, files of this type are never reformatted.
+    */
+
+    public boolean enabled = true;
+
+    @NotNull FormattingProfile copy()
+    {
+        FormattingProfile profile = new FormattingProfile();
+        profile.fileType = fileType;
+        profile.lineWidth = lineWidth;
+        profile.bullets = bullets;
+        profile.commentPrefixes = commentPrefixes;
+        profile.balancedWrapping = balancedWrapping;
+        profile.enabled = enabled;
+        return profile;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof FormattingProfile)) {
+            return false;
+        }
+        FormattingProfile other = (FormattingProfile) o;
+        return lineWidth == other.lineWidth
+          && balancedWrapping == other.balancedWrapping
+          && enabled == other.enabled
+          && Objects.equals(fileType, other.fileType)
+          && Objects.equals(bullets, other.bullets)
+          && Objects.equals(commentPrefixes, other.commentPrefixes);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(fileType, lineWidth, bullets, commentPrefixes, balancedWrapping, enabled);
+    }
+}
@@ -0,0 +1,232 @@
+package com.github.cbfiddle.autoformattext2;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.github.cbfiddle.autoformattext2.engine.CommentPrefixes;
+import com.github.cbfiddle.autoformattext2.engine.CommentSyntax;
+import com.github.cbfiddle.autoformattext2.engine.Hyphenator;
+import com.github.cbfiddle.autoformattext2.engine.MarginRecognizer;
+import com.github.cbfiddle.autoformattext2.engine.TextMeasure;
+import com.github.cbfiddle.autoformattext2.engine.WrappedBlockCache;
+import com.intellij.application.options.CodeStyle;
+import com.intellij.lang.Language;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.fileTypes.FileType;
+import com.intellij.openapi.fileTypes.LanguageFileType;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.text.StringUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+  The formatting rules for the files of one file type: the settings of its {@link FormattingProfile}, or the general
+  settings if it has none, resolved into the objects the engine uses. The settings of the rules never change once they
+  are compiled, which happens when a file type is first formatted. Rules are cached in a concurrent map until the
+  settings change, so the interactive action and the batch actions obtain them with a single lookup.
+  <p>
+  The line width may depend on the editor or the project code style, and the margin recognizer on the tab size, so
+  those are resolved when they are requested. The only mutable state is the last margin recognizer, which is kept in
+  a volatile field, as the tab size rarely changes. Threads that race to replace it each create an equivalent
+  recognizer, so any of them may be kept.
+*/
+
+final class FormattingRules
+{
+    // Replaced rather than cleared, so that rules compiled from the old settings during an invalidation are dropped
+    private static volatile Map<FileType,FormattingRules> cache = new ConcurrentHashMap<>();
+
+    // The paragraphs known to be formatted. The keys include the settings, so the cache survives settings changes.
+    private static final WrappedBlockCache wrappedBlockCache = new WrappedBlockCache(4096);
+
+    private final boolean enabled;
+    private final int lineWidth;
+    private final CommentSyntax commentSyntax;
+    private final String bullets;
+    private final int balancedWordLimit;
+    private final boolean pixelWrapping;
+    private final @Nullable Hyphenator hyphenator;
+
+    private volatile @Nullable MarginRecognizer marginRecognizer;
+
+    private FormattingRules(boolean enabled,
+                            int lineWidth,
+                            @NotNull CommentSyntax commentSyntax,
+                            @NotNull String bullets,
+                            int balancedWordLimit,
+                            boolean pixelWrapping,
+                            @Nullable Hyphenator hyphenator)
+    {
+        this.enabled = enabled;
+        this.lineWidth = lineWidth;
+        this.commentSyntax = commentSyntax;
+        this.bullets = bullets;
+        this.balancedWordLimit = balancedWordLimit;
+        this.pixelWrapping = pixelWrapping;
+        this.hyphenator = hyphenator;
+    }
+
+    static @NotNull FormattingRules forFileType(@NotNull FileType fileType)
+    {
+        return cache.computeIfAbsent(fileType, FormattingRules::compile);
+    }
+
+    /**
+      Discard the cached rules. Called when the settings change.
+    */
+
+    static void invalidate()
+    {
+        cache = new ConcurrentHashMap<>();
+    }
+
+    /**
+      Return the cache of formatted paragraphs shared by all of the actions.
+    */
+
+    static @NotNull WrappedBlockCache getWrappedBlockCache()
+    {
+        return wrappedBlockCache;
+    }
+
+    private static @NotNull FormattingRules compile(@NotNull FileType fileType)
+    {
+        AppSettingsState settings = AppSettingsState.getInstance();
+        FormattingProfile profile = settings.findProfile(fileType.getName());
+        Hyphenator hyphenator = getHyphenator(settings.hyphenationLanguage);
+        if (profile == null) {
+            return new FormattingRules(true, settings.lineWidth, getCommentSyntax(fileType), MarginRecognizer.DEFAULT_BULLETS,
+                                       settings.getEffectiveBalancedWordLimit(), settings.pixelWrapping, hyphenator);
+        }
+
+        String[] prefixes = StringUtil.isEmptyOrSpaces(profile.commentPrefixes)
+          ? new String[0]
+          : profile.commentPrefixes.trim().split("\\s+");
+        CommentSyntax commentSyntax = prefixes.length > 0 ? CommentSyntax.of(prefixes) : getCommentSyntax(fileType);
+        String bullets = profile.bullets != null ? profile.bullets.replace(" ", "") : MarginRecognizer.DEFAULT_BULLETS;
+        return new FormattingRules(profile.enabled, profile.lineWidth, commentSyntax, bullets,
+                                   profile.balancedWrapping ? settings.balancedWordLimit : 0, settings.pixelWrapping,
+                                   hyphenator);
+    }
+
+    /**
+      Return the hyphenator for the specified language, or null if the language is empty or has no patterns. The
+      patterns of a language are loaded once, when a file is first formatted with it.
+    */
+
+    private static @Nullable Hyphenator getHyphenator(@Nullable String language)
+    {
+        if (StringUtil.isEmptyOrSpaces(language)) {
+            return null;
+        }
+        return Hyphenator.forLanguage(language.trim().toLowerCase());
+    }
+
+    /**
+      Return the comment prefixes registered for the language of the specified file type. A language that is not
+      registered uses the prefixes of its base language, so that dialects are covered.
+    */
+
+    private static @NotNull CommentSyntax getCommentSyntax(@NotNull FileType fileType)
+    {
+        if (fileType instanceof LanguageFileType) {
+            for (Language language = ((LanguageFileType) fileType).getLanguage(); language != null;
+                 language = language.getBaseLanguage()) {
+                CommentSyntax syntax = CommentPrefixes.forLanguage(language.getID());
+                if (!syntax.isEmpty()) {
+                    return syntax;
+                }
+            }
+        }
+        return CommentSyntax.NONE;
+    }
+
+    /**
+      Return false if files of this type are not to be reformatted.
+    */
+
+    boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+      Return the line width to use in the specified editor. The default line width is the right margin as determined
+      by the editor/project settings.
+    */
+
+    int getLineWidth(@NotNull Editor editor, @Nullable Project project)
+    {
+        return lineWidth != 0 ? lineWidth : editor.getSettings().getRightMargin(project);
+    }
+
+    /**
+      Return the line width to use for a file of the specified type when there is no editor. The default line width
+      is the right margin as determined by the project code style.
+    */
+
+    int getLineWidth(@NotNull Project project, @NotNull FileType fileType)
+    {
+        if (lineWidth != 0) {
+            return lineWidth;
+        }
+        Language language = fileType instanceof LanguageFileType ? ((LanguageFileType) fileType).getLanguage() : null;
+        return CodeStyle.getSettings(project).getRightMargin(language);
+    }
+
+    /**
+      Return a margin recognizer for the specified tab size.
+    */
+
+    @NotNull MarginRecognizer getMarginRecognizer(int tabSize)
+    {
+        MarginRecognizer recognizer = marginRecognizer;
+        if (recognizer == null || recognizer.getTabSize() != Math.max(tabSize, 1)) {
+            recognizer = new MarginRecognizer(commentSyntax, bullets, tabSize);
+            marginRecognizer = recognizer;
+        }
+        return recognizer;
+    }
+
+    /**
+      Return a margin recognizer that uses the tab size of the specified editor.
+    */
+
+    @NotNull MarginRecognizer getMarginRecognizer(@NotNull Editor editor, @Nullable Project project)
+    {
+        return getMarginRecognizer(editor.getSettings().getTabSize(project));
+    }
+
+    /**
+      Return a margin recognizer that uses the tab size of the project code style.
+    */
+
+    @NotNull MarginRecognizer getMarginRecognizer(@NotNull Project project, @NotNull FileType fileType)
+    {
+        return getMarginRecognizer(CodeStyle.getSettings(project).getTabSize(fileType));
+    }
+
+    /**
+      Return the measure of text to use in the specified editor: display columns, or, if wrapping to the right margin
+      guide is enabled, the pixel widths of the editor font. Must be called in the event dispatch thread.
+    */
+
+    @NotNull TextMeasure getTextMeasure(@NotNull Editor editor)
+    {
+        return pixelWrapping ? EditorTextMeasure.forEditor(editor) : TextMeasure.COLUMNS;
+    }
+
+    /**
+      Return the hyphenator to use, or null if words are not to be hyphenated.
+    */
+
+    @Nullable Hyphenator getHyphenator()
+    {
+        return hyphenator;
+    }
+
+    int getBalancedWordLimit()
+    {
+        return balancedWordLimit;
+    }
+}
@@ -0,0 +1,253 @@
+package com.github.cbfiddle.autoformattext2;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+import com.github.cbfiddle.autoformattext2.engine.WrapStatistics;
+import com.intellij.openapi.diagnostic.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+  Timings and block sizes of recent invocations of the Format Text action, collected when enabled in the settings.
+  <p>
+  Each invocation is timed by an {@link Invocation}, which exists only when collection is enabled; the action checks
+  for null before reading the clock, so no time is measured when collection is disabled. A completed invocation is
+  stored in a ring buffer that holds the most recent {@link #WINDOW} invocations. Percentiles and the histogram are
+  computed from the buffer only when a summary is requested, so recording an invocation is a few array stores.
+*/
+
+final class FormattingStatistics
+{
+    private static final Logger LOG = Logger.getInstance(FormattingStatistics.class);
+
+    private static final FormattingStatistics INSTANCE = new FormattingStatistics();
+
+    /**
+      The number of recent invocations that are summarized.
+    */
+
+    static final int WINDOW = 1024;
+
+    /**
+      The phases of an invocation. Margin recognition is part of wrapping; the total is the elapsed time from the
+      invocation of the action to the end of the document write, including any time spent waiting for a background
+      thread or repeating a computation that was cancelled.
+    */
+
+    enum Phase
+    {
+        BLOCK_DETECTION("Block detection"),
+        MARGIN_RECOGNITION("Margin recognition"),
+        WRAPPING("Wrapping"),
+        CARET_MAPPING("Edits and caret mapping"),
+        DOCUMENT_WRITE("Document write"),
+        TOTAL("Total");
+
+        final String displayName;
+
+        Phase(@NotNull String displayName)
+        {
+            this.displayName = displayName;
+        }
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final long[][] phaseNanos = new long[PHASES.length][WINDOW];
+    private final long[] characters = new long[WINDOW];
+    private final long[] lines = new long[WINDOW];
+    private final long[] words = new long[WINDOW];
+    private final int[] blocks = new int[WINDOW];
+    private long invocationCount;
+
+    static @NotNull FormattingStatistics getInstance()
+    {
+        return INSTANCE;
+    }
+
+    /**
+      Start timing an invocation.
+
+      @return the invocation, or null if collection is disabled.
+    */
+
+    static @Nullable Invocation startInvocation()
+    {
+        AppSettingsState settings = AppSettingsState.getInstance();
+        return settings.collectStatistics ? new Invocation(settings.slowInvocationThreshold) : null;
+    }
+
+    private synchronized void add(@NotNull Invocation invocation)
+    {
+        int slot = (int) (invocationCount++ % WINDOW);
+        for (int phase = 0; phase < PHASES.length; phase++) {
+            phaseNanos[phase][slot] = invocation.nanos[phase];
+        }
+        characters[slot] = invocation.characters;
+        lines[slot] = invocation.lines;
+        words[slot] = invocation.words;
+        blocks[slot] = invocation.blocks;
+    }
+
+    synchronized void clear()
+    {
+        invocationCount = 0;
+    }
+
+    /**
+      Return a plain text summary of the recent invocations, suitable for pasting into a bug report.
+    */
+
+    synchronized @NotNull String summarize()
+    {
+        int count = (int) Math.min(invocationCount, WINDOW);
+        StringBuilder sb = new StringBuilder();
+        sb.append("Auto-Format Text 2 statistics: last ").append(count).append(" of ").append(invocationCount)
+          .append(" invocations\n");
+        if (count == 0) {
+            return sb.toString();
+        }
+
+        sb.append(String.format(Locale.ROOT, "%n%-24s %10s %10s %10s %10s %10s%n", "Time (ms)", "mean", "p50", "p90", "p99", "max"));
+        for (int phase = 0; phase < PHASES.length; phase++) {
+            long[] sorted = Arrays.copyOf(phaseNanos[phase], count);
+            Arrays.sort(sorted);
+            sb.append(String.format(Locale.ROOT, "%-24s %10.3f %10.3f %10.3f %10.3f %10.3f%n", PHASES[phase].displayName,
+                                    mean(sorted) / 1e6, percentile(sorted, 50) / 1e6, percentile(sorted, 90) / 1e6,
+                                    percentile(sorted, 99) / 1e6, sorted[count - 1] / 1e6));
+        }
+
+        sb.append(String.format(Locale.ROOT, "%n%-24s %10s %10s %10s %10s %10s%n", "Size", "mean", "p50", "p90", "p99", "max"));
+        appendSizeRow(sb, "Blocks", Arrays.stream(blocks, 0, count).asLongStream().toArray());
+        appendSizeRow(sb, "Characters", Arrays.copyOf(characters, count));
+        appendSizeRow(sb, "Lines", Arrays.copyOf(lines, count));
+        appendSizeRow(sb, "Words", Arrays.copyOf(words, count));
+
+        // Histogram of the total time, in buckets that double in width
+        sb.append(String.format(Locale.ROOT, "%nTotal time histogram%n"));
+        int[] buckets = new int[40];
+        int lastBucket = 0;
+        for (int i = 0; i < count; i++) {
+            long micros = phaseNanos[Phase.TOTAL.ordinal()][i] / 1000;
+            int bucket = micros == 0 ? 0 : Math.min(64 - Long.numberOfLeadingZeros(micros), buckets.length - 1);
+            buckets[bucket]++;
+            lastBucket = Math.max(lastBucket, bucket);
+        }
+        for (int bucket = 0; bucket <= lastBucket; bucket++) {
+            sb.append(String.format(Locale.ROOT, "  < %10.3f ms %6d%n", (1L << bucket) / 1e3, buckets[bucket]));
+        }
+        return sb.toString();
+    }
+
+    private static void appendSizeRow(@NotNull StringBuilder sb, @NotNull String name, long[] values)
+    {
+        Arrays.sort(values);
+        sb.append(String.format(Locale.ROOT, "%-24s %10.1f %10d %10d %10d %10d%n", name, mean(values), percentile(values, 50),
+                                percentile(values, 90), percentile(values, 99), values[values.length - 1]));
+    }
+
+    private static double mean(long[] values)
+    {
+        double sum = 0;
+        for (long value : values) {
+            sum += value;
+        }
+        return sum / values.length;
+    }
+
+    /**
+      Return a percentile of sorted values, using the nearest rank.
+    */
+
+    private static long percentile(long[] sorted, int percent)
+    {
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+        return sorted[Math.max(rank, 1) - 1];
+    }
+
+    /**
+      The measurements of one invocation. Phases are timed by passing the time at which the phase started to
+      {@link #lap}, which returns the time at which the next phase starts.
+    */
+
+    static final class Invocation
+    {
+        private final long startTime = System.nanoTime();
+        private final int slowThreshold;
+
+        private final long[] nanos = new long[PHASES.length];
+        private long characters;
+        private long lines;
+        private long words;
+        private int blocks;
+
+        private Invocation(int slowThreshold)
+        {
+            this.slowThreshold = slowThreshold;
+        }
+
+        /**
+          Add the time since {@code phaseStart} to a phase.
+
+          @return the current time.
+        */
+
+        long lap(@NotNull Phase phase, long phaseStart)
+        {
+            long now = System.nanoTime();
+            nanos[phase.ordinal()] += now - phaseStart;
+            return now;
+        }
+
+        /**
+          Add the counts and margin recognition time of a block.
+        */
+
+        void addBlock(@NotNull WrapStatistics statistics)
+        {
+            blocks++;
+            characters += statistics.getCharacterCount();
+            lines += statistics.getLineCount();
+            words += statistics.getWordCount();
+            nanos[Phase.MARGIN_RECOGNITION.ordinal()] += statistics.getMarginNanos();
+        }
+
+        /**
+          Discard the measurements of a computation that is about to be repeated. The total time is not affected.
+        */
+
+        void reset()
+        {
+            Arrays.fill(nanos, 0);
+            characters = 0;
+            lines = 0;
+            words = 0;
+            blocks = 0;
+        }
+
+        /**
+          Record the invocation, which has completed, and log it if it was slow.
+        */
+
+        void finish()
+        {
+            nanos[Phase.TOTAL.ordinal()] = System.nanoTime() - startTime;
+            getInstance().add(this);
+            if (slowThreshold > 0 && nanos[Phase.TOTAL.ordinal()] > slowThreshold * 1_000_000L) {
+                LOG.info(describe());
+            }
+        }
+
+        private @NotNull String describe()
+        {
+            StringBuilder sb = new StringBuilder("Slow Format Text:");
+            for (Phase phase : PHASES) {
+                sb.append(String.format(Locale.ROOT, " %s %.3f ms,", phase.displayName, nanos[phase.ordinal()] / 1e6));
+            }
+            sb.append(" ").append(blocks).append(" blocks, ").append(characters).append(" characters, ").append(lines)
+              .append(" lines, ").append(words).append(" words");
+            return sb.toString();
+        }
+    }
+}
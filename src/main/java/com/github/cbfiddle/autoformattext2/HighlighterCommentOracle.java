@@ -0,0 +1,267 @@
+package com.github.cbfiddle.autoformattext2;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.github.cbfiddle.autoformattext2.engine.CommentOracle;
+import com.intellij.lexer.Lexer;
+import com.intellij.openapi.editor.DefaultLanguageHighlighterColors;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.colors.TextAttributesKey;
+import com.intellij.openapi.editor.ex.EditorEx;
+import com.intellij.openapi.editor.highlighter.EditorHighlighter;
+import com.intellij.openapi.editor.highlighter.HighlighterIterator;
+import com.intellij.openapi.fileTypes.SyntaxHighlighter;
+import com.intellij.openapi.fileTypes.SyntaxHighlighterFactory;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.tree.IElementType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+  Identifies comments from the tokens of a file's syntax highlighter. A token is a comment if one of its text
+  attribute keys is, or falls back to, one of the comment keys of {@link DefaultLanguageHighlighterColors}, which
+  works for any language with a highlighter, whether or not its comment prefixes are registered.
+  <p>
+  The highlighter of an editor is iterated only over the offsets that are queried, starting at the first one. A
+  document that is not open in an editor is lexed from its start, but only as far as the last offset queried, so
+  reformatting a range of a document does not lex the text that follows it. The comment ranges that have been passed
+  are cached, so that queries in increasing order visit each token once.
+*/
+
+final class HighlighterCommentOracle
+  implements CommentOracle
+{
+    private static final Set<TextAttributesKey> COMMENT_KEYS = Set.of(DefaultLanguageHighlighterColors.LINE_COMMENT,
+                                                                      DefaultLanguageHighlighterColors.BLOCK_COMMENT,
+                                                                      DefaultLanguageHighlighterColors.DOC_COMMENT);
+
+    /**
+      A query this far beyond the tokens already visited starts a new iteration at the queried offset, rather than
+      iterating over the tokens in between.
+    */
+
+    private static final int MAXIMUM_SKIP = 16 * 1024;
+
+    // The highlighter of an editor, or null if the text is lexed with the lexer of the syntax highlighter
+    private final @Nullable EditorHighlighter highlighter;
+    private final SyntaxHighlighter syntaxHighlighter;
+    private final @Nullable CharSequence text;
+    private final Map<IElementType,Boolean> commentTokenTypes = new HashMap<>();
+
+    private @Nullable TokenIterator iterator;
+
+    // The range of the text whose tokens have been visited, and the comment ranges within it as start/end pairs
+    private int visitedStart;
+    private int visitedEnd;
+    private int[] commentRanges = new int[32];
+    private int commentRangeCount;
+
+    private HighlighterCommentOracle(@Nullable EditorHighlighter highlighter,
+                                     @NotNull SyntaxHighlighter syntaxHighlighter,
+                                     @Nullable CharSequence text)
+    {
+        this.highlighter = highlighter;
+        this.syntaxHighlighter = syntaxHighlighter;
+        this.text = text;
+    }
+
+    /**
+      Create an oracle that uses the highlighter of an editor, which is already up to date.
+    */
+
+    static @Nullable CommentOracle forEditor(@NotNull Editor editor, @Nullable Project project, @NotNull VirtualFile file)
+    {
+        SyntaxHighlighter syntaxHighlighter = SyntaxHighlighterFactory.getSyntaxHighlighter(file.getFileType(), project, file);
+        if (syntaxHighlighter == null) {
+            return null;
+        }
+        if (!(editor instanceof EditorEx)) {
+            return forDocument(project, file, editor.getDocument());
+        }
+        return new HighlighterCommentOracle(((EditorEx) editor).getHighlighter(), syntaxHighlighter, null);
+    }
+
+    /**
+      Create an oracle for a document that may not be open in an editor. The document is lexed as it is queried.
+    */
+
+    static @Nullable CommentOracle forDocument(@Nullable Project project, @NotNull VirtualFile file, @NotNull Document document)
+    {
+        SyntaxHighlighter syntaxHighlighter = SyntaxHighlighterFactory.getSyntaxHighlighter(file.getFileType(), project, file);
+        if (syntaxHighlighter == null) {
+            return null;
+        }
+        return new HighlighterCommentOracle(null, syntaxHighlighter, document.getImmutableCharSequence());
+    }
+
+    @Override
+    public boolean isComment(int offset)
+    {
+        if (iterator == null || offset < visitedStart || (highlighter != null && offset > visitedEnd + MAXIMUM_SKIP)) {
+            iterator = createIterator(offset);
+            visitedStart = iterator.atEnd() ? offset : iterator.getStart();
+            visitedEnd = visitedStart;
+            commentRangeCount = 0;
+        }
+
+        while (offset >= visitedEnd && !iterator.atEnd()) {
+            if (isCommentToken(iterator.getTokenType())) {
+                addCommentRange(iterator.getStart(), iterator.getEnd());
+            }
+            visitedEnd = iterator.getEnd();
+            iterator.advance();
+        }
+        return offset < visitedEnd && isInCommentRange(offset);
+    }
+
+    /**
+      Return an iterator over the tokens from the one containing the specified offset or, when lexing the text, from
+      the start of the text, as a lexer can only start in its initial state.
+    */
+
+    private @NotNull TokenIterator createIterator(int offset)
+    {
+        if (highlighter != null) {
+            HighlighterIterator highlighterIterator = highlighter.createIterator(offset);
+            return new TokenIterator()
+            {
+                @Override
+                public boolean atEnd()
+                {
+                    return highlighterIterator.atEnd();
+                }
+
+                @Override
+                public @Nullable IElementType getTokenType()
+                {
+                    return highlighterIterator.getTokenType();
+                }
+
+                @Override
+                public int getStart()
+                {
+                    return highlighterIterator.getStart();
+                }
+
+                @Override
+                public int getEnd()
+                {
+                    return highlighterIterator.getEnd();
+                }
+
+                @Override
+                public void advance()
+                {
+                    highlighterIterator.advance();
+                }
+            };
+        }
+
+        assert text != null;
+        Lexer lexer = syntaxHighlighter.getHighlightingLexer();
+        lexer.start(text);
+        return new TokenIterator()
+        {
+            @Override
+            public boolean atEnd()
+            {
+                return lexer.getTokenType() == null;
+            }
+
+            @Override
+            public @Nullable IElementType getTokenType()
+            {
+                return lexer.getTokenType();
+            }
+
+            @Override
+            public int getStart()
+            {
+                return lexer.getTokenStart();
+            }
+
+            @Override
+            public int getEnd()
+            {
+                return lexer.getTokenEnd();
+            }
+
+            @Override
+            public void advance()
+            {
+                lexer.advance();
+            }
+        };
+    }
+
+    private boolean isCommentToken(@Nullable IElementType tokenType)
+    {
+        if (tokenType == null) {
+            return false;
+        }
+        return commentTokenTypes.computeIfAbsent(tokenType, type -> {
+            for (TextAttributesKey key : syntaxHighlighter.getTokenHighlights(type)) {
+                for (TextAttributesKey k = key; k != null; k = k.getFallbackAttributeKey()) {
+                    if (COMMENT_KEYS.contains(k)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        });
+    }
+
+    private void addCommentRange(int start, int end)
+    {
+        if (commentRangeCount > 0 && commentRanges[2 * commentRangeCount - 1] == start) {
+            // Adjacent comment tokens, like the parts of a doc comment, form one range
+            commentRanges[2 * commentRangeCount - 1] = end;
+            return;
+        }
+        if (2 * commentRangeCount == commentRanges.length) {
+            commentRanges = Arrays.copyOf(commentRanges, 2 * commentRanges.length);
+        }
+        commentRanges[2 * commentRangeCount] = start;
+        commentRanges[2 * commentRangeCount + 1] = end;
+        commentRangeCount++;
+    }
+
+    private boolean isInCommentRange(int offset)
+    {
+        int low = 0;
+        int high = commentRangeCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (offset < commentRanges[2 * middle]) {
+                high = middle - 1;
+            } else if (offset >= commentRanges[2 * middle + 1]) {
+                low = middle + 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+      The tokens of the text, from an editor highlighter or a lexer.
+    */
+
+    private interface TokenIterator
+    {
+        boolean atEnd();
+
+        @Nullable IElementType getTokenType();
+
+        int getStart();
+
+        int getEnd();
+
+        void advance();
+    }
+}
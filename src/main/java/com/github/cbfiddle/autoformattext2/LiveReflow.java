@@ -0,0 +1,225 @@
+package com.github.cbfiddle.autoformattext2;
+
+import com.github.cbfiddle.autoformattext2.engine.CommentOracle;
+import com.github.cbfiddle.autoformattext2.engine.Hyphenator;
+import com.github.cbfiddle.autoformattext2.engine.MarginRecognizer;
+import com.github.cbfiddle.autoformattext2.engine.ParagraphFinder;
+import com.github.cbfiddle.autoformattext2.engine.ParagraphWrapper;
+import com.github.cbfiddle.autoformattext2.engine.TextEdits;
+import com.github.cbfiddle.autoformattext2.engine.TextMeasure;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.command.CommandProcessor;
+import com.intellij.openapi.command.UndoConfirmationPolicy;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.RangeMarker;
+import com.intellij.openapi.editor.ex.util.EditorUtil;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.fileTypes.FileType;
+import com.intellij.openapi.fileTypes.FileTypeManager;
+import com.intellij.openapi.fileTypes.FileTypes;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.Alarm;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+  Rewraps the paragraph being typed in after a pause in typing, when enabled in the settings: the comment paragraph,
+  or any paragraph in a plain text file. Comments are identified by the editor's highlighter where there is one, as
+  the margin alone would take code for a comment, such as a line that continues an expression with {@code *}. A
+  keystroke only records the edited range in a range marker and restarts a
+  timer, so typing is not slowed down.
+  <p>
+  When the timer fires, the lines from the line before the edit to the end of the paragraph are rewrapped greedily
+  by {@link ParagraphWrapper#rewrap}, which stops as soon as the line breaks agree with the existing text. The edits
+  are computed in a non-blocking read action, which is abandoned if the document changes (typing will have restarted
+  the timer), and applied as a command in the undo group of the typing, so that one undo removes both.
+*/
+
+final class LiveReflow
+{
+    private static final Key<LiveReflow> KEY = Key.create("AutoFormatText2.LiveReflow");
+
+    /**
+      The pause in typing, in milliseconds, after which the paragraph is rewrapped.
+    */
+
+    private static final int DELAY = 300;
+
+    private final Editor editor;
+    private final Alarm alarm;
+
+    // The range edited since the last reflow, or null. Only used on the event dispatch thread.
+    private @Nullable RangeMarker dirtyRange;
+
+    private LiveReflow(@NotNull Editor editor)
+    {
+        this.editor = editor;
+        Disposable disposable = Disposer.newDisposable("AutoFormatText2 live reflow");
+        EditorUtil.disposeWithEditor(editor, disposable);
+        this.alarm = new Alarm(Alarm.ThreadToUse.SWING_THREAD, disposable);
+    }
+
+    /**
+      Note that the text at the specified offset was edited by typing. Must be called on the event dispatch thread.
+    */
+
+    static void edited(@NotNull Editor editor, int offset)
+    {
+        if (!AppSettingsState.getInstance().reflowAsYouType || editor.isViewer()
+              || editor.getCaretModel().getCaretCount() > 1) {
+            return;
+        }
+        LiveReflow reflow = editor.getUserData(KEY);
+        if (reflow == null) {
+            reflow = new LiveReflow(editor);
+            editor.putUserData(KEY, reflow);
+        }
+        reflow.markDirty(offset);
+    }
+
+    private void markDirty(int offset)
+    {
+        Document document = editor.getDocument();
+        int start = offset;
+        int end = offset;
+        if (dirtyRange != null) {
+            // Edits on nearby lines are likely to be in the same paragraph; a distant edit replaces the range
+            if (dirtyRange.isValid()
+                  && Math.abs(document.getLineNumber(dirtyRange.getStartOffset()) - document.getLineNumber(offset)) <= 1) {
+                start = Math.min(start, dirtyRange.getStartOffset());
+                end = Math.max(end, dirtyRange.getEndOffset());
+            }
+            dirtyRange.dispose();
+        }
+        dirtyRange = document.createRangeMarker(start, end);
+        dirtyRange.setGreedyToRight(true);
+
+        alarm.cancelAllRequests();
+        alarm.addRequest(this::reflow, DELAY);
+    }
+
+    private void reflow()
+    {
+        RangeMarker range = dirtyRange;
+        if (range == null || !range.isValid() || editor.isDisposed()) {
+            return;
+        }
+        Document document = editor.getDocument();
+        VirtualFile virtualFile = FileDocumentManager.getInstance().getFile(document);
+        if (virtualFile == null || !document.isWritable()) {
+            return;
+        }
+
+        Project project = editor.getProject();
+        FileType fileType = FileTypeManager.getInstance().getFileTypeByFile(virtualFile);
+        FormattingRules rules = FormattingRules.forFileType(fileType);
+        if (!rules.isEnabled()) {
+            return;
+        }
+        int lineWidth = rules.getLineWidth(editor, project);
+        MarginRecognizer marginRecognizer = rules.getMarginRecognizer(editor, project);
+        TextMeasure measure = rules.getTextMeasure(editor);
+        Hyphenator hyphenator = rules.getHyphenator();
+        boolean commentsOnly = fileType != FileTypes.PLAIN_TEXT;
+        CommentOracle commentOracle = commentsOnly ? HighlighterCommentOracle.forEditor(editor, project, virtualFile) : null;
+        int editStart = range.getStartOffset();
+        int editEnd = range.getEndOffset();
+        long modificationStamp = document.getModificationStamp();
+
+        ReadAction.nonBlocking(() -> computeEdits(document, marginRecognizer, lineWidth, measure, hyphenator, commentsOnly, commentOracle, editStart, editEnd))
+          .expireWhen(() -> editor.isDisposed() || document.getModificationStamp() != modificationStamp)
+          .coalesceBy(this)
+          .finishOnUiThread(ModalityState.defaultModalityState(), edits -> {
+              if (dirtyRange == range) {
+                  range.dispose();
+                  dirtyRange = null;
+              }
+              apply(project, editor, edits);
+          })
+          .submit(AppExecutorUtil.getAppExecutorService());
+    }
+
+    /**
+      Compute the edits that rewrap the paragraph containing the start of the edited range, from the line before it.
+      If only comments are rewrapped and there is a comment oracle, the paragraph is limited to the comment lines
+      around the edit, as {@link com.github.cbfiddle.autoformattext2.engine.TextReflower} does. Must be called in a
+      read action.
+    */
+
+    private static @NotNull TextEdits computeEdits(@NotNull Document document,
+                                                   @NotNull MarginRecognizer marginRecognizer,
+                                                   int lineWidth,
+                                                   @NotNull TextMeasure measure,
+                                                   @Nullable Hyphenator hyphenator,
+                                                   boolean commentsOnly,
+                                                   @Nullable CommentOracle commentOracle,
+                                                   int editStart,
+                                                   int editEnd)
+    {
+        TextEdits edits = new TextEdits();
+        CharSequence text = document.getImmutableCharSequence();
+
+        // The paragraph is found by scanning outward from the edit, so no index of the document is needed
+        ParagraphFinder paragraphFinder = new ParagraphFinder(text, new DocumentLineIndex(document), marginRecognizer);
+        paragraphFinder.setCancellationCheck(ProgressManager::checkCanceled);
+        int editLine = document.getLineNumber(editStart);
+        if (paragraphFinder.isEmptyLine(editLine) || paragraphFinder.isBlankLine(editLine)) {
+            return edits;
+        }
+        int startLine = paragraphFinder.findStartLine(editLine);
+        int endLine = paragraphFinder.findEndLine(editLine);
+        if (commentsOnly && commentOracle != null) {
+            if (!paragraphFinder.isCommentLine(editLine, commentOracle)) {
+                return edits;
+            }
+            int firstLine = startLine;
+            int lastLine = endLine;
+            startLine = editLine;
+            while (startLine > firstLine && paragraphFinder.isCommentLine(startLine - 1, commentOracle)) {
+                startLine--;
+            }
+            endLine = editLine;
+            while (endLine < lastLine && paragraphFinder.isCommentLine(endLine + 1, commentOracle)) {
+                endLine++;
+            }
+        } else if (commentsOnly && !paragraphFinder.isCommentLine(startLine)) {
+            return edits;
+        }
+
+        ParagraphWrapper wrapper = new ParagraphWrapper(marginRecognizer, lineWidth);
+        wrapper.setCancellationCheck(ProgressManager::checkCanceled);
+        wrapper.setTextMeasure(measure);
+        wrapper.setHyphenator(hyphenator);
+        wrapper.rewrap(text, document.getLineStartOffset(startLine), document.getLineEndOffset(endLine),
+                       document.getLineStartOffset(Math.max(editLine - 1, startLine)), editEnd, edits);
+        return edits;
+    }
+
+    /**
+      Apply the edits, keeping the caret at the same place in the text. Without this, a caret at the start of an edit,
+      such as the end of a line that was joined with the next one, would follow the inserted text.
+    */
+
+    private static void apply(@Nullable Project project, @NotNull Editor editor, @NotNull TextEdits edits)
+    {
+        if (edits.isEmpty()) {
+            return;
+        }
+        Document document = editor.getDocument();
+        int caretOffset = edits.mapOffset(editor.getCaretModel().getOffset());
+        // Typing uses the document as its command group, so the reflow is undone with the typing that caused it
+        CommandProcessor.getInstance().executeCommand(project, () -> ApplicationManager.getApplication().runWriteAction(() -> {
+            AutoFormatTextActionProcessor.applyEdits(document, edits);
+            editor.getCaretModel().moveToOffset(caretOffset);
+        }), "Reflow Text", document, UndoConfirmationPolicy.DEFAULT, document);
+    }
+}
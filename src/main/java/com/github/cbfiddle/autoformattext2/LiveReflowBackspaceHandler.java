@@ -0,0 +1,26 @@
+package com.github.cbfiddle.autoformattext2;
+
+import com.intellij.codeInsight.editorActions.BackspaceHandlerDelegate;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.psi.PsiFile;
+import org.jetbrains.annotations.NotNull;
+
+/**
+  Notifies {@link LiveReflow} of characters deleted by backspace, which may make room for words of the next line.
+*/
+
+public final class LiveReflowBackspaceHandler
+  extends BackspaceHandlerDelegate
+{
+    @Override
+    public void beforeCharDeleted(char c, @NotNull PsiFile file, @NotNull Editor editor)
+    {
+    }
+
+    @Override
+    public boolean charDeleted(char c, @NotNull PsiFile file, @NotNull Editor editor)
+    {
+        LiveReflow.edited(editor, editor.getCaretModel().getOffset());
+        return false;
+    }
+}
@@ -0,0 +1,24 @@
+package com.github.cbfiddle.autoformattext2;
+
+import com.intellij.codeInsight.editorActions.TypedHandlerDelegate;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.PsiFile;
+import org.jetbrains.annotations.NotNull;
+
+/**
+  Notifies {@link LiveReflow} of typed characters. A typed line break is left alone, as it ends a line on purpose.
+*/
+
+public final class LiveReflowTypedHandler
+  extends TypedHandlerDelegate
+{
+    @Override
+    public @NotNull Result charTyped(char c, @NotNull Project project, @NotNull Editor editor, @NotNull PsiFile file)
+    {
+        if (c != '\n') {
+            LiveReflow.edited(editor, editor.getCaretModel().getOffset());
+        }
+        return Result.CONTINUE;
+    }
+}
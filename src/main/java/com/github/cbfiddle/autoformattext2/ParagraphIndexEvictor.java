@@ -0,0 +1,29 @@
+package com.github.cbfiddle.autoformattext2;
+
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.EditorFactory;
+import com.intellij.openapi.editor.event.EditorFactoryEvent;
+import com.intellij.openapi.editor.event.EditorFactoryListener;
+import org.jetbrains.annotations.NotNull;
+
+/**
+  Discards the paragraph index of a document when its last editor is released.
+*/
+
+public final class ParagraphIndexEvictor
+  implements EditorFactoryListener
+{
+    @Override
+    public void editorReleased(@NotNull EditorFactoryEvent event)
+    {
+        Editor released = event.getEditor();
+        Document document = released.getDocument();
+        for (Editor editor : EditorFactory.getInstance().getEditors(document)) {
+            if (editor != released) {
+                return;
+            }
+        }
+        DocumentParagraphIndex.evict(document);
+    }
+}
@@ -0,0 +1,218 @@
+package com.github.cbfiddle.autoformattext2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.github.cbfiddle.autoformattext2.engine.MarginRecognizer;
+import com.github.cbfiddle.autoformattext2.engine.TextEdits;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.command.CommandProcessor;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.fileTypes.FileType;
+import com.intellij.openapi.fileTypes.FileTypes;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.util.io.FileUtilRt;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+  Reformats the comments in every file under a set of directories (every paragraph, in plain text files).
+  <p>
+  Files are processed in batches. The edits for the files of a batch are computed in non-blocking read actions on a
+  bounded pool of worker threads, one per core, and then applied on the event dispatch thread in a single write
+  command. Cancellation is checked between batches, so a file is either completely reformatted or not at all. A file
+  that cannot be read or reformatted is logged and skipped, and the number of skipped files is logged at the end.
+*/
+
+final class ProjectReflower
+{
+    private static final Logger LOG = Logger.getInstance(ProjectReflower.class);
+
+    private static final int BATCH_SIZE = 32;
+
+    private final Project project;
+
+    ProjectReflower(@NotNull Project project)
+    {
+        this.project = project;
+    }
+
+    /**
+      Collect the text files in the project content under the specified files or directories.
+    */
+
+    @NotNull List<VirtualFile> collectFiles(@NotNull VirtualFile[] roots)
+    {
+        List<VirtualFile> files = new ArrayList<>();
+        ReadAction.run(() -> {
+            ProjectFileIndex fileIndex = ProjectFileIndex.getInstance(project);
+            for (VirtualFile root : roots) {
+                fileIndex.iterateContentUnderDirectory(root, file -> {
+                    if (!file.isDirectory() && !file.getFileType().isBinary() && !FileUtilRt.isTooLarge(file.getLength())) {
+                        files.add(file);
+                    }
+                    return true;
+                });
+            }
+        });
+        return files;
+    }
+
+    /**
+      Reformat the specified files, reporting progress to the specified indicator.
+
+      @return the number of files that were skipped because they could not be read or reformatted.
+    */
+
+    int run(@NotNull List<VirtualFile> files, @NotNull ProgressIndicator indicator)
+    {
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = AppExecutorUtil.createBoundedApplicationPoolExecutor("AutoFormatText2 Reflow", threads);
+        long startTime = System.nanoTime();
+        int skipped = 0;
+        indicator.setIndeterminate(false);
+
+        try {
+            for (int batchStart = 0; batchStart < files.size(); batchStart += BATCH_SIZE) {
+                indicator.checkCanceled();
+
+                List<VirtualFile> batch = files.subList(batchStart, Math.min(batchStart + BATCH_SIZE, files.size()));
+                List<Future<FileEdits>> futures = new ArrayList<>(batch.size());
+                for (VirtualFile file : batch) {
+                    futures.add(executor.submit(() -> ReadAction.nonBlocking(() -> computeEdits(file))
+                        .wrapProgress(indicator)
+                        .executeSynchronously()));
+                }
+
+                List<FileEdits> results = new ArrayList<>();
+                for (int i = 0; i < futures.size(); i++) {
+                    try {
+                        FileEdits result = getResult(futures.get(i));
+                        if (result != null) {
+                            results.add(result);
+                        }
+                    } catch (ExecutionException e) {
+                        LOG.warn("Skipped " + batch.get(i).getPath(), e.getCause());
+                        skipped++;
+                    }
+                }
+
+                indicator.checkCanceled();
+                if (!results.isEmpty()) {
+                    ApplicationManager.getApplication().invokeAndWait(() -> apply(results), ModalityState.defaultModalityState());
+                }
+
+                int done = batchStart + batch.size();
+                double seconds = Math.max((System.nanoTime() - startTime) / 1e9, 1e-3);
+                indicator.setFraction((double) done / files.size());
+                indicator.setText2(String.format("%d of %d files, %.0f files/s", done, files.size(), done / seconds));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        if (skipped > 0) {
+            LOG.warn("Skipped " + skipped + " of " + files.size() + " files that could not be formatted");
+        }
+        return skipped;
+    }
+
+    /**
+      Compute the edits for a file. Runs in a read action on a worker thread.
+
+      @return the edits, or null if the file does not need to be changed.
+    */
+
+    private @Nullable FileEdits computeEdits(@NotNull VirtualFile file)
+    {
+        if (!file.isValid()) {
+            return null;
+        }
+        Document document = FileDocumentManager.getInstance().getDocument(file);
+        if (document == null || !document.isWritable()) {
+            return null;
+        }
+        FileType fileType = file.getFileType();
+        FormattingRules rules = FormattingRules.forFileType(fileType);
+        if (!rules.isEnabled()) {
+            return null;
+        }
+        int lineWidth = rules.getLineWidth(project, fileType);
+        MarginRecognizer marginRecognizer = rules.getMarginRecognizer(project, fileType);
+        boolean commentsOnly = fileType != FileTypes.PLAIN_TEXT;
+        DocumentReflower reflower = new DocumentReflower(marginRecognizer, lineWidth, commentsOnly, rules.getBalancedWordLimit());
+        reflower.setHyphenator(rules.getHyphenator());
+        if (commentsOnly) {
+            reflower.setCommentOracle(HighlighterCommentOracle.forDocument(project, file, document));
+        }
+
+        long modificationStamp = document.getModificationStamp();
+        TextEdits edits = reflower.computeEdits(document);
+        return edits.isEmpty() ? null : new FileEdits(document, modificationStamp, edits);
+    }
+
+    /**
+      Wait for the edits of a file. A cancellation is rethrown; any other failure of the computation is thrown as an
+      {@link ExecutionException}, so that the file can be skipped.
+    */
+
+    private static @Nullable FileEdits getResult(@NotNull Future<FileEdits> future)
+      throws ExecutionException
+    {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            throw new ProcessCanceledException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ProcessCanceledException) {
+                throw (ProcessCanceledException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+      Apply the edits for a batch of files in one write command. A document that changed since its edits were
+      computed is skipped.
+    */
+
+    private void apply(@NotNull List<FileEdits> results)
+    {
+        CommandProcessor.getInstance().executeCommand(project, () -> ApplicationManager.getApplication().runWriteAction(() -> {
+            for (FileEdits result : results) {
+                if (result.document.getModificationStamp() == result.modificationStamp) {
+                    DocumentReflower.applyInBulk(result.document, result.edits);
+                }
+            }
+        }), "Format Text in Files", null);
+    }
+
+    /**
+      The edits computed for one file.
+    */
+
+    private static final class FileEdits
+    {
+        final Document document;
+        final long modificationStamp;
+        final TextEdits edits;
+
+        FileEdits(@NotNull Document document, long modificationStamp, @NotNull TextEdits edits)
+        {
+            this.document = document;
+            this.modificationStamp = modificationStamp;
+            this.edits = edits;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.github.cbfiddle.autoformattext2
+
+import com.github.cbfiddle.autoformattext2.engine.DisplayWidth
+import com.github.cbfiddle.autoformattext2.engine.MarginRecognizer
+import com.github.cbfiddle.autoformattext2.engine.ParagraphWrapper
+import junit.framework.TestCase
+
+/**
+ * Checks the display widths of representative characters, and that wrapping allows for them.
+ */
+class DisplayWidthTest : TestCase() {
+
+    fun testWidths() {
+        assertEquals(3, width("abc"))
+        // CJK ideographs, Hangul syllables and fullwidth forms are wide
+        assertEquals(6, width("日本語"))
+        assertEquals(6, width("한국어"))
+        assertEquals(4, width("ａｂ"))
+        // An emoji is one wide code point, although it is a surrogate pair
+        assertEquals(2, width("😀"))
+        // Combining marks and zero width characters take no space
+        assertEquals(1, width("e\u0301"))
+        assertEquals(2, width("a\u200bb"))
+        // Ambiguous and halfwidth characters are narrow
+        assertEquals(1, width("\u00e9"))
+        assertEquals(1, width("\uff76"))
+        // An unpaired surrogate is counted as one column
+        assertEquals(2, width("\ud83dx"))
+    }
+
+    fun testWrapWideText() {
+        val wrapper = ParagraphWrapper(MarginRecognizer(true, 4), 12)
+        val text = " * 日本語 日本語 日本語"
+        assertEquals(" * 日本語\n * 日本語\n * 日本語", wrapper.wrap(text, 0, text.length))
+    }
+
+    private fun width(text: String) = DisplayWidth.of(text, 0, text.length)
+}
@@ -0,0 +1,54 @@
+package com.github.cbfiddle.autoformattext2
+
+import com.intellij.openapi.command.WriteCommandAction
+import com.intellij.openapi.fileEditor.FileDocumentManager
+import com.intellij.testFramework.fixtures.BasePlatformTestCase
+
+/**
+ * Checks that saving a document reformats the comments edited since the last save, as identified by the tokens of
+ * the file's highlighter, and leaves the code that follows a comment at the same indentation alone. JSON files are
+ * used because their highlighter is part of the platform, and no comment prefixes are registered for them, so that
+ * comment and code lines with the same indentation are in the same paragraph.
+ */
+class FormatOnSaveTest : BasePlatformTestCase() {
+
+    private var formatOnSave = false
+
+    override fun setUp() {
+        super.setUp()
+        formatOnSave = AppSettingsState.getInstance().formatOnSave
+        AppSettingsState.getInstance().formatOnSave = true
+    }
+
+    override fun tearDown() {
+        try {
+            AppSettingsState.getInstance().formatOnSave = formatOnSave
+        } finally {
+            super.tearDown()
+        }
+    }
+
+    fun testOneLineDocCommentFollowedByCode() {
+        val text = "{\n    /** Returns the answer. */\n    \"answer\": 42\n}\n"
+        assertEquals(text, editAndSave(text))
+    }
+
+    fun testCommentIsReformatted() {
+        val text = "{\n    /* The answer to the\n    question. */\n    \"answer\": 42,\n" +
+                   "    /** Returns the answer. */\n    \"question\": \"unknown\"\n}\n"
+        val expected = "{\n    /* The answer to the question. */\n    \"answer\": 42,\n" +
+                       "    /** Returns the answer. */\n    \"question\": \"unknown\"\n}\n"
+        assertEquals(expected, editAndSave(text))
+    }
+
+    /**
+     * Replace the text of a document open in an editor, so that every line is recorded as edited, and save it.
+     */
+    private fun editAndSave(text: String): String {
+        myFixture.configureByText("test.json", "")
+        val document = myFixture.editor.document
+        WriteCommandAction.runWriteCommandAction(project) { document.setText(text) }
+        FileDocumentManager.getInstance().saveDocument(document)
+        return document.text
+    }
+}
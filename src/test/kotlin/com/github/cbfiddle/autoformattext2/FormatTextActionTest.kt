@@ -0,0 +1,120 @@
+package com.github.cbfiddle.autoformattext2
+
+import com.intellij.openapi.editor.CaretState
+import com.intellij.openapi.util.TextRange
+import com.intellij.testFramework.fixtures.BasePlatformTestCase
+import java.io.File
+
+/**
+ * Replays the corpus of [FormattingCorpusTest] through the Format Text action, so that the snapshot of the carets, the
+ * merging of their blocks and the relocation of the carets are covered as well as the engine. Each plain text sample
+ * is selected as a whole. The action reformats every paragraph of a selection, code included, so each run of comment
+ * lines of a Java sample is selected with a caret of its own. The test platform has no Java support, so the Java
+ * samples are opened as plain text, with a profile that registers the comment prefixes of Java.
+ */
+class FormatTextActionTest : BasePlatformTestCase() {
+
+    private var lineWidth = 0
+    private var profiles = listOf<FormattingProfile>()
+
+    override fun setUp() {
+        super.setUp()
+        val settings = AppSettingsState.getInstance()
+        lineWidth = settings.lineWidth
+        profiles = settings.profiles
+        settings.lineWidth = 80
+        FormattingRules.invalidate()
+    }
+
+    override fun tearDown() {
+        try {
+            val settings = AppSettingsState.getInstance()
+            settings.lineWidth = lineWidth
+            settings.profiles = profiles
+            FormattingRules.invalidate()
+        } finally {
+            super.tearDown()
+        }
+    }
+
+    fun testPlainText() {
+        for (name in listOf("bullets.txt", "enumerations.txt", "long-words.txt")) {
+            val text = File(DATA_PATH, name).readText()
+            myFixture.configureByText("sample.txt", text)
+            myFixture.editor.selectionModel.setSelection(0, text.length)
+            myFixture.performEditorAction(ACTION_ID)
+
+            // After formatting a selection, the caret is placed at the end of the reformatted text
+            val golden = golden(name)
+            assertEquals(name, golden, myFixture.editor.document.text)
+            assertEquals(name, listOf(golden.trimEnd('\n').length), caretOffsets())
+        }
+    }
+
+    fun testJavaComments() {
+        for (name in listOf("javadoc.java", "line-comments.java", "tabs.java")) {
+            val text = File(DATA_PATH, name).readText()
+            myFixture.configureByText("sample.txt", text)
+            val profile = FormattingProfile()
+            profile.fileType = myFixture.file.fileType.name
+            profile.lineWidth = 80
+            profile.commentPrefixes = "// *"
+            AppSettingsState.getInstance().profiles = listOf(profile)
+            FormattingRules.invalidate()
+
+            val editor = myFixture.editor
+            editor.caretModel.caretsAndSelections = commentRuns(text).map {
+                val start = editor.offsetToLogicalPosition(it.startOffset)
+                val end = editor.offsetToLogicalPosition(it.endOffset)
+                CaretState(end, start, end)
+            }
+            myFixture.performEditorAction(ACTION_ID)
+
+            val golden = golden(name)
+            assertEquals(name, golden, editor.document.text)
+            assertEquals(name, commentRuns(golden).map { it.endOffset }, caretOffsets())
+        }
+    }
+
+    private fun golden(name: String): String {
+        val file = File(DATA_PATH, name)
+        return File(DATA_PATH, "${file.nameWithoutExtension}_after.${file.extension}").readText()
+    }
+
+    private fun caretOffsets() = myFixture.editor.caretModel.allCarets.map { it.offset }
+
+    /**
+     * Return the ranges of the runs of lines of Java source that contain only comments, from the start of the first
+     * line of each to the end of its last line.
+     */
+    private fun commentRuns(text: String): List<TextRange> {
+        val oracle = JavaCommentOracle(text)
+        val runs = mutableListOf<TextRange>()
+        var runStart = -1
+        var runEnd = -1
+        var lineStart = 0
+        for (line in text.split('\n')) {
+            val first = line.indexOfFirst { it != ' ' && it != '\t' }
+            val last = line.indexOfLast { it != ' ' && it != '\t' }
+            if (first >= 0 && oracle.isComment(lineStart + first) && oracle.isComment(lineStart + last)) {
+                if (runStart < 0) {
+                    runStart = lineStart
+                }
+                runEnd = lineStart + line.length
+            } else if (runStart >= 0) {
+                runs.add(TextRange(runStart, runEnd))
+                runStart = -1
+            }
+            lineStart += line.length + 1
+        }
+        if (runStart >= 0) {
+            runs.add(TextRange(runStart, runEnd))
+        }
+        return runs
+    }
+
+    companion object {
+        private const val ACTION_ID = "com.github.cbfiddle.autoformattext2.AutoFormatTextAction"
+        private const val DATA_PATH = "src/test/testData/formatting"
+    }
+}
@@ -0,0 +1,135 @@
+package com.github.cbfiddle.autoformattext2
+
+import com.github.cbfiddle.autoformattext2.engine.CommentPrefixes
+import com.github.cbfiddle.autoformattext2.engine.CommentSyntax
+import com.github.cbfiddle.autoformattext2.engine.LineIndex
+import com.github.cbfiddle.autoformattext2.engine.MarginRecognizer
+import com.github.cbfiddle.autoformattext2.engine.TextEdits
+import com.github.cbfiddle.autoformattext2.engine.TextReflower
+import com.sun.management.ThreadMXBean
+import junit.framework.TestCase
+import java.io.File
+import java.lang.management.ManagementFactory
+
+/**
+ * Replays the corpus in src/test/testData/formatting (Javadoc, line comments, bullets, enumerations, tabs and words
+ * longer than the line width) through the formatting engine, as the file actions do. Java source is reformatted with
+ * a comment oracle, as the highlighter provides in the IDE. Each file must be reformatted at a width of 80 columns
+ * into its golden file, which must then be left unchanged. [FormatTextActionTest] replays the same corpus through the
+ * Format Text action.
+ *
+ * The replay must also stay within budgets for the bytes allocated per kilobyte of text, so that a change that makes
+ * the hot path allocate fails the build. The budgets are about 1.5 times what the engine allocates, which does not
+ * depend on the machine. The time budget is a floor on the kilobytes formatted per second, measured as the best of
+ * several runs. It is set about 50 times below what the engine achieves, so that it only fails on a slowdown of an
+ * order of magnitude, and not on a slow or busy machine.
+ */
+class FormattingCorpusTest : TestCase() {
+
+    private class Sample(val name: String, val text: String, val formatted: String) {
+        val java = name.endsWith(".java")
+        private val syntax = if (java) CommentPrefixes.forLanguage("JAVA") else CommentSyntax.NONE
+        val reflower = TextReflower(MarginRecognizer(syntax, 4), 80, java)
+    }
+
+    /**
+     * A text to reformat with the reflower of its sample.
+     */
+    private class Input(val sample: Sample, val text: String) {
+        val lines = LineIndex.of(text)
+        val oracle = if (sample.java) JavaCommentOracle(text) else null
+    }
+
+    private val samples = File("src/test/testData/formatting").listFiles()!!
+        .filter { !it.nameWithoutExtension.endsWith("_after") }
+        .sortedBy { it.name }
+        .map { file ->
+            val golden = File(file.parentFile, "${file.nameWithoutExtension}_after.${file.extension}")
+            Sample(file.name, file.readText(), golden.readText())
+        }
+
+    fun testGoldenFiles() {
+        assertFalse(samples.isEmpty())
+        val out = StringBuilder()
+        for (sample in samples) {
+            reformat(Input(sample, sample.text), out)
+            assertEquals(sample.name, sample.formatted, out.toString())
+            assertTrue(sample.name, computeEdits(Input(sample, sample.formatted)).isEmpty)
+        }
+    }
+
+    fun testAllocationsWhenReformatting() {
+        assertAllocations(samples.map { Input(it, it.text) }, 4096)
+    }
+
+    fun testAllocationsWhenAlreadyFormatted() {
+        assertAllocations(samples.map { Input(it, it.formatted) }, 2560)
+    }
+
+    fun testThroughput() {
+        val inputs = samples.map { Input(it, it.text) }
+        val out = StringBuilder()
+        replay(inputs, out, WARMUP_ROUNDS)
+
+        // The best of several runs, as the others may be slowed down by garbage collection or other processes
+        var bestNanos = Long.MAX_VALUE
+        repeat(TIMED_RUNS) {
+            val start = System.nanoTime()
+            replay(inputs, out, MEASURED_ROUNDS)
+            bestNanos = minOf(bestNanos, System.nanoTime() - start)
+        }
+        val kilobytes = inputs.sumOf { it.text.length } / 1024.0 * MEASURED_ROUNDS
+        val kilobytesPerSecond = (kilobytes * 1_000_000_000 / bestNanos).toLong()
+        assertTrue("formatted $kilobytesPerSecond KB per second, budget $MIN_KILOBYTES_PER_SECOND",
+                   kilobytesPerSecond >= MIN_KILOBYTES_PER_SECOND)
+    }
+
+    private fun assertAllocations(inputs: List<Input>, maxBytesPerKilobyte: Long) {
+        val threads = ManagementFactory.getThreadMXBean() as? ThreadMXBean
+        if (threads == null || !threads.isThreadAllocatedMemorySupported) {
+            return
+        }
+        threads.isThreadAllocatedMemoryEnabled = true
+        val out = StringBuilder()
+        replay(inputs, out, WARMUP_ROUNDS)
+
+        val threadId = Thread.currentThread().id
+        val before = threads.getThreadAllocatedBytes(threadId)
+        replay(inputs, out, MEASURED_ROUNDS)
+        val allocated = threads.getThreadAllocatedBytes(threadId) - before
+        val kilobytes = inputs.sumOf { it.text.length } / 1024.0
+        val bytesPerKilobyte = (allocated / (kilobytes * MEASURED_ROUNDS)).toLong()
+        assertTrue("allocated $bytesPerKilobyte bytes per KB, budget $maxBytesPerKilobyte",
+                   bytesPerKilobyte <= maxBytesPerKilobyte)
+    }
+
+    private fun replay(inputs: List<Input>, out: StringBuilder, rounds: Int) {
+        for (round in 0 until rounds) {
+            for (input in inputs) {
+                reformat(input, out)
+            }
+        }
+    }
+
+    /**
+     * Reformat a text with the reflower of its sample, writing the result to the buffer.
+     */
+    private fun reformat(input: Input, out: StringBuilder) {
+        val edits = computeEdits(input)
+        out.setLength(0)
+        edits.writeTo(input.text, out)
+    }
+
+    private fun computeEdits(input: Input): TextEdits {
+        val reflower = input.sample.reflower
+        reflower.setCommentOracle(input.oracle)
+        return reflower.computeEdits(input.text, input.lines)
+    }
+
+    companion object {
+        private const val WARMUP_ROUNDS = 2000
+        private const val MEASURED_ROUNDS = 500
+        private const val TIMED_RUNS = 5
+        private const val MIN_KILOBYTES_PER_SECOND = 1000L
+    }
+}
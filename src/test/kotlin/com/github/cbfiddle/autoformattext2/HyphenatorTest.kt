@@ -0,0 +1,118 @@
+package com.github.cbfiddle.autoformattext2
+
+import com.github.cbfiddle.autoformattext2.engine.Hyphenator
+import com.github.cbfiddle.autoformattext2.engine.MarginRecognizer
+import com.github.cbfiddle.autoformattext2.engine.ParagraphWrapper
+import junit.framework.TestCase
+import java.util.Random
+
+/**
+ * Checks the hyphenation points found with the US English patterns, that wrapping hyphenates words, and that the
+ * hyphens at the ends of lines, whether inserted or not, are kept when the text is wrapped again.
+ */
+class HyphenatorTest : TestCase() {
+
+    private val hyphenator = Hyphenator.forLanguage("en-us")!!
+
+    fun testHyphenate() {
+        assertEquals("hy-phen-ation", hyphenate("hyphenation"))
+        assertEquals("con-fig-u-ra-tion", hyphenate("configuration"))
+        assertEquals("com-puter", hyphenate("computer"))
+        // Short words and the ends of words are not hyphenated
+        assertEquals("word", hyphenate("word"))
+        // Each run of letters is hyphenated separately
+        assertEquals("well-known al-go-rithm", hyphenate("well-known algorithm"))
+    }
+
+    fun testUnknownLanguage() {
+        assertNull(Hyphenator.forLanguage("xx-none"))
+        assertNull(Hyphenator.forLanguage("../en-us"))
+    }
+
+    fun testWrapHyphenated() {
+        val wrapper = ParagraphWrapper(MarginRecognizer(true, 4), 20)
+        wrapper.setHyphenator(hyphenator)
+        val text = " * the hyphenation of configuration"
+        val wrapped = wrapper.wrap(text, 0, text.length)
+        assertEquals(" * the hyphenation\n * of configuration", wrapped)
+        val narrow = ParagraphWrapper(MarginRecognizer(true, 4), 12)
+        narrow.setHyphenator(hyphenator)
+        val hyphenated = narrow.wrap(text, 0, text.length)
+        assertEquals(" * the hy-\n * phenation\n * of con-\n * figura-\n * tion", hyphenated)
+        assertTrue(narrow.isWrapped(hyphenated, 0, hyphenated.length))
+        assertEquals(hyphenated, narrow.wrap(hyphenated, 0, hyphenated.length))
+    }
+
+    fun testKeepHyphenAtLineEnd() {
+        // A hyphen at the end of a line may be part of the word, so it is never removed
+        assertEquals("self- contained", wrap("self-\ncontained", 80))
+        assertEquals("a well- known", wrap("a well-\nknown", 80))
+        assertEquals("co- operate", wrap("co-\noperate", 80))
+        assertEquals("a self-\ncontained,\nwell-known\nway to co-\noperate",
+                     wrap("a self-contained, well-known way to co-operate", 10))
+    }
+
+    fun testSuspendedHyphen() {
+        assertEquals("Check both pre-\nand post-condi-\ntions of the\nmethod",
+                     wrap("Check both pre- and post-conditions of the method", 17))
+        assertEquals("The re-\ndog exam-\nple", wrap("The re- dog example", 9))
+    }
+
+    fun testWrapIsIdempotent() {
+        val words = ("hyphenation algorithm configuration paragraph the a of and to is well-known self-contained " +
+                     "state-of-the-art Anglo-Saxon representation characteristically co-operate re-enter pre- post- " +
+                     "re- x-ray e.g. (see 2020 interoperability supercalifragilisticexpialidocious").split(" ")
+        val margins = listOf("", " * ", "// ", "  ")
+        val random = Random(7)
+        repeat(20000) { iteration ->
+            val width = 4 + random.nextInt(40)
+            val margin = margins[random.nextInt(margins.size)]
+            val source = StringBuilder(margin)
+            repeat(1 + random.nextInt(30)) { word ->
+                if (word > 0) {
+                    source.append(if (random.nextInt(8) == 0) "\n$margin" else " ")
+                }
+                if (random.nextBoolean()) {
+                    source.append(words[random.nextInt(words.size)])
+                } else {
+                    // Made-up words, some with hyphens, some capitalized, which the patterns hyphenate in odd places
+                    repeat(1 + if (random.nextInt(3) == 0) random.nextInt(4) else 0) { part ->
+                        if (part > 0) {
+                            source.append('-')
+                        }
+                        repeat(1 + random.nextInt(14)) {
+                            source.append((if (random.nextInt(30) == 0) 'A' else 'a') + random.nextInt(26))
+                        }
+                    }
+                }
+            }
+            val wrapper = ParagraphWrapper(MarginRecognizer(true, 4), width)
+            wrapper.setHyphenator(hyphenator)
+            val wrapped = wrapper.wrap(source, 0, source.length)
+            val context = "iteration $iteration, width $width:\n$source"
+            assertEquals(context, wrapped, wrapper.wrap(wrapped, 0, wrapped.length))
+            assertTrue(context, wrapper.isWrapped(wrapped, 0, wrapped.length))
+        }
+    }
+
+    private fun wrap(text: String, width: Int): String {
+        val wrapper = ParagraphWrapper(MarginRecognizer(true, 4), width)
+        wrapper.setHyphenator(hyphenator)
+        val wrapped = wrapper.wrap(text, 0, text.length)
+        assertEquals(wrapped, wrapper.wrap(wrapped, 0, wrapped.length))
+        return wrapped
+    }
+
+    private fun hyphenate(text: String): String {
+        val points = ByteArray(text.length + 1)
+        hyphenator.hyphenate(text, 0, text.length, points)
+        val sb = StringBuilder()
+        for (i in text.indices) {
+            if (points[i].toInt() and 1 != 0) {
+                sb.append('-')
+            }
+            sb.append(text[i])
+        }
+        return sb.toString()
+    }
+}
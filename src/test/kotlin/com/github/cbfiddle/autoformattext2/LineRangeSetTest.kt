@@ -0,0 +1,51 @@
+package com.github.cbfiddle.autoformattext2
+
+import com.github.cbfiddle.autoformattext2.engine.LineRangeSet
+import junit.framework.TestCase
+import java.util.Random
+
+/**
+ * Checks that [LineRangeSet], as it is updated after random edits, contains the same lines as a list of flags that is
+ * edited the same way, and that its ranges stay sorted, disjoint and not adjacent.
+ */
+class LineRangeSetTest : TestCase() {
+
+    fun testRandomEdits() {
+        val random = Random(11)
+        repeat(5000) { iteration ->
+            val set = LineRangeSet()
+            val edited = MutableList(1 + random.nextInt(20)) { false }
+            repeat(10) {
+                val startLine = random.nextInt(edited.size)
+                val oldEndLine = startLine + random.nextInt(minOf(4, edited.size - startLine))
+                val newEndLine = startLine + random.nextInt(5)
+                repeat(oldEndLine - startLine + 1) { edited.removeAt(startLine) }
+                repeat(newEndLine - startLine + 1) { edited.add(startLine, true) }
+                set.update(startLine, oldEndLine, newEndLine)
+
+                val context = "iteration $iteration, edit $startLine $oldEndLine $newEndLine"
+                val lines = BooleanArray(edited.size)
+                var previousEnd = -2
+                for (range in 0 until set.size()) {
+                    assertTrue(context, set.getStart(range) > previousEnd + 1)
+                    assertTrue(context, set.getEnd(range) >= set.getStart(range))
+                    for (line in set.getStart(range)..set.getEnd(range)) {
+                        lines[line] = true
+                    }
+                    previousEnd = set.getEnd(range)
+                }
+                assertEquals(context, edited, lines.toList())
+            }
+        }
+    }
+
+    fun testAdjacentRangesMerge() {
+        val set = LineRangeSet()
+        set.add(2, 3)
+        set.add(6, 6)
+        set.add(4, 5)
+        assertEquals(1, set.size())
+        assertEquals(2, set.getStart(0))
+        assertEquals(6, set.getEnd(0))
+    }
+}
@@ -0,0 +1,97 @@
+package com.github.cbfiddle.autoformattext2
+
+import com.github.cbfiddle.autoformattext2.engine.CommentSyntax
+import com.github.cbfiddle.autoformattext2.engine.Margin
+import com.github.cbfiddle.autoformattext2.engine.MarginRecognizer
+import junit.framework.TestCase
+import java.io.File
+import java.util.StringTokenizer
+import java.util.regex.Matcher
+import java.util.regex.Pattern
+
+/**
+ * Checks that [MarginRecognizer] identifies the same margins as the original regular expression based implementation,
+ * which is kept here as the reference, and that recognizers compiled from equal settings have the same syntax.
+ */
+class MarginRecognizerTest : TestCase() {
+
+    fun testCorpus() {
+        val lines = File("src/test/testData/margins/corpus.txt").readLines().filter { it.isNotEmpty() }
+        for (javaComments in listOf(true, false)) {
+            for (tabSize in listOf(1, 4, 8)) {
+                val recognizer = MarginRecognizer(javaComments, tabSize)
+                val margin = Margin()
+                for (line in lines) {
+                    // Embed the line in a larger sequence to check that only the range is examined
+                    val text = "x\n$line\ny"
+                    recognizer.recognize(text, 2, 2 + line.length, margin)
+                    for (isFirstLine in listOf(true, false)) {
+                        val expected = referenceLeftMargin(line, isFirstLine, javaComments)
+                        val context = "[$line] java=$javaComments tab=$tabSize firstLine=$isFirstLine"
+                        assertEquals(context, expected, margin.getText(text, isFirstLine))
+                        assertEquals(context, expected.length, margin.length)
+                        assertEquals(context, referenceWidth(expected, tabSize), margin.width)
+                    }
+                }
+            }
+        }
+    }
+
+    fun testSameSyntax() {
+        // Settings are compiled again whenever they are applied, which must not invalidate paragraph indexes
+        val recognizer = MarginRecognizer(CommentSyntax.of("//", " *"), 4)
+        assertTrue(recognizer.hasSameSyntax(MarginRecognizer(CommentSyntax.of(" *", "//"), 8)))
+        assertFalse(recognizer.hasSameSyntax(MarginRecognizer(CommentSyntax.of("//", "#"), 4)))
+        assertFalse(recognizer.hasSameSyntax(MarginRecognizer(CommentSyntax.of("//", " *"), "-", 4)))
+    }
+
+    private fun referenceLeftMargin(text: String, isFirstLine: Boolean, javaComments: Boolean): String {
+        val firstLine = StringTokenizer(text, "\n\r").nextToken()
+        val margin = StringBuilder()
+        var foundJavaStar = false
+        var foundJavaSlashSlash = false
+        var foundTextBullet = false
+        var i = 0
+        while (i < firstLine.length) {
+            val c = firstLine[i]
+            if (c == ' ' || c == '\t') {
+                margin.append(c)
+            } else if (javaComments && !foundJavaStar && c == '*') {
+                foundJavaStar = true
+                margin.append(c)
+            } else if (javaComments && !foundJavaSlashSlash && c == '/' && i < firstLine.length - 1 && firstLine[i + 1] == '/') {
+                foundJavaSlashSlash = true
+                margin.append("//")
+                i++
+            } else if (!foundTextBullet && (c == '#' || c == '*' || c == '-' || c == '@')) {
+                foundTextBullet = true
+                margin.append(if (isFirstLine) c else ' ')
+            } else if (!foundTextBullet) {
+                val rest = firstLine.substring(i)
+                var matcher: Matcher = Pattern.compile("(\\(?[0-9][0-9]?\\)).*").matcher(rest)
+                if (!matcher.matches()) matcher = Pattern.compile("(\\(?[a-z][a-z]?\\)).*").matcher(rest)
+                if (!matcher.matches()) matcher = Pattern.compile("(\\(?[A-Z][A-Z]?\\)).*").matcher(rest)
+                if (matcher.matches()) {
+                    foundTextBullet = true
+                    val matchedText = matcher.group(1)
+                    margin.append(if (isFirstLine) matchedText else " ".repeat(matchedText.length))
+                    i += matchedText.length - 1
+                } else {
+                    break
+                }
+            } else {
+                break
+            }
+            i++
+        }
+        return margin.toString()
+    }
+
+    private fun referenceWidth(text: String, tabSize: Int): Int {
+        var col = 0
+        for (ch in text) {
+            col = if (ch == '\t') (col / tabSize + 1) * tabSize else col + 1
+        }
+        return col
+    }
+}
@@ -0,0 +1,79 @@
+package com.github.cbfiddle.autoformattext2
+
+import com.github.cbfiddle.autoformattext2.engine.LineIndex
+import com.github.cbfiddle.autoformattext2.engine.MarginRecognizer
+import com.github.cbfiddle.autoformattext2.engine.ParagraphFinder
+import com.github.cbfiddle.autoformattext2.engine.ParagraphIndex
+import junit.framework.TestCase
+import java.util.Random
+
+/**
+ * Checks that [ParagraphIndex], as it is updated after random edits, finds the same paragraphs as [ParagraphFinder]
+ * scanning the edited text, and that the scans of [ParagraphFinder] bounded to a range of lines stop at its ends.
+ */
+class ParagraphIndexTest : TestCase() {
+
+    private val lineTemplates = arrayOf(
+        "", "  ", "foo bar", "  foo", " * x y", " * ", "// a", "- item", "  cont", "1) one", "   two", "\t@ tab", "#",
+        " * - b", "  * z",
+    )
+
+    fun testIncrementalUpdates() {
+        val random = Random(7)
+        repeat(2000) { iteration ->
+            val recognizer = MarginRecognizer(random.nextBoolean(), 4)
+            var text = randomLines(random, random.nextInt(12))
+            val index = ParagraphIndex(recognizer, text, LineIndex.of(text))
+            repeat(20) {
+                val start = random.nextInt(text.length + 1)
+                val end = start + random.nextInt(minOf(10, text.length - start) + 1)
+                val insertion = when (random.nextInt(4)) {
+                    0 -> "\n"
+                    1 -> ""
+                    else -> ("\n" + randomLines(random, 1 + random.nextInt(3))).substring(random.nextInt(2))
+                }
+                val startLine = lineOf(text, start)
+                val oldEndLine = lineOf(text, end)
+                text = text.substring(0, start) + insertion + text.substring(end)
+                val lines = LineIndex.of(text)
+                index.update(text, lines, startLine, oldEndLine, lineOf(text, start + insertion.length))
+
+                assertEquals(lines.lineCount, index.lineCount)
+                val finder = ParagraphFinder(text, lines, recognizer)
+                for (line in 0 until lines.lineCount) {
+                    if (!finder.isEmptyLine(line)) {
+                        val context = "iteration $iteration, line $line of \"$text\""
+                        assertEquals(context, finder.findStartLine(line), index.findStartLine(line))
+                        assertEquals(context, finder.findEndLine(line), index.findEndLine(line))
+                    }
+                }
+            }
+        }
+    }
+
+    fun testBoundedScans() {
+        val random = Random(11)
+        repeat(2000) { iteration ->
+            val recognizer = MarginRecognizer(random.nextBoolean(), 4)
+            val text = randomLines(random, 1 + random.nextInt(12))
+            val lines = LineIndex.of(text)
+            val finder = ParagraphFinder(text, lines, recognizer)
+            for (line in 0 until lines.lineCount) {
+                if (!finder.isEmptyLine(line)) {
+                    val context = "iteration $iteration, line $line of \"$text\""
+                    val firstLine = random.nextInt(line + 1)
+                    val lastLine = line + random.nextInt(lines.lineCount - line)
+                    val startLine = maxOf(finder.findStartLine(line), firstLine)
+                    val endLine = minOf(finder.findEndLine(line), lastLine)
+                    assertEquals(context, startLine, finder.findStartLine(line, firstLine))
+                    assertEquals(context, endLine, finder.findEndLine(line, lastLine))
+                }
+            }
+        }
+    }
+
+    private fun randomLines(random: Random, count: Int): String =
+        (0 until count).joinToString("\n") { lineTemplates[random.nextInt(lineTemplates.size)] }
+
+    private fun lineOf(text: String, offset: Int): Int = (0 until offset).count { text[it] == '\n' }
+}
@@ -0,0 +1,113 @@
+package com.github.cbfiddle.autoformattext2
+
+import com.github.cbfiddle.autoformattext2.engine.CommentSyntax
+import com.github.cbfiddle.autoformattext2.engine.LineIndex
+import com.github.cbfiddle.autoformattext2.engine.MarginRecognizer
+import com.github.cbfiddle.autoformattext2.engine.ParagraphFinder
+import com.github.cbfiddle.autoformattext2.engine.ParagraphWrapper
+import com.github.cbfiddle.autoformattext2.engine.TextEdits
+import junit.framework.TestCase
+import java.util.Random
+
+/**
+ * Checks that [ParagraphWrapper.rewrap], as used to reflow the paragraph being typed in, produces the same text as
+ * wrapping the whole paragraph, and that the caret is mapped through its edits.
+ */
+class RewrapTest : TestCase() {
+
+    private val recognizers = listOf(MarginRecognizer(CommentSyntax.of("#", "//", " *"), 4),
+                                     MarginRecognizer(CommentSyntax.NONE, 4))
+
+    fun testEditInMarginOfShortenedLine() {
+        // " ccc" was deleted from the second line, at the end of its margin, making room for the word below
+        val wrapper = ParagraphWrapper(recognizers[0], 13)
+        assertEquals("# dddd eeeee\n  ?? dddd", rewrap(wrapper, "# dddd eeeee\n  ??\n  dddd", 14, 14))
+    }
+
+    fun testRandomEdits() {
+        val random = Random(7)
+        val margins = listOf("", " * ", "// ", "  ", "# ")
+        var checked = 0
+        repeat(100000) { iteration ->
+            val width = 8 + random.nextInt(30)
+            val recognizer = recognizers[random.nextInt(recognizers.size)]
+            val wrapper = ParagraphWrapper(recognizer, width)
+            val source = StringBuilder(margins[random.nextInt(margins.size)])
+            if (random.nextInt(4) == 0) {
+                source.append("- ")
+            }
+            repeat(1 + random.nextInt(30)) { word ->
+                if (word > 0) {
+                    source.append(' ')
+                }
+                repeat(1 + random.nextInt(if (random.nextInt(10) == 0) 20 else 6)) {
+                    source.append('a' + random.nextInt(26))
+                }
+            }
+            val text = wrapper.wrap(source, 0, source.length)
+
+            // Replace a few characters anywhere, including margins and line breaks, with letters and spaces
+            val position = random.nextInt(text.length + 1)
+            val deleted = if (random.nextBoolean()) minOf(random.nextInt(6), text.length - position) else 0
+            val inserted = StringBuilder()
+            if (deleted == 0 || random.nextBoolean()) {
+                repeat(random.nextInt(6)) {
+                    inserted.append(if (random.nextInt(4) == 0) ' ' else 'a' + random.nextInt(26))
+                }
+            }
+            val edited = text.substring(0, position) + inserted + text.substring(position + deleted)
+            if (!isOneParagraph(edited, recognizer)) {
+                return@repeat
+            }
+            checked++
+
+            // Trailing spaces at the end of the paragraph are kept, as they are likely to be followed by more typing
+            val expected = wrapper.wrap(edited, 0, edited.length)
+            val actual = rewrap(wrapper, edited, position, position + inserted.length).trimEnd(' ')
+            assertEquals("iteration $iteration, width $width:\n$text\nedited at $position:\n$edited", expected, actual)
+        }
+        assertTrue(checked > 50000)
+    }
+
+    fun testCaretAfterBackspaceAtLineEnd() {
+        // Backspace at the end of " * aaa bbb" makes room for "ccc" on the first line
+        val wrapper = ParagraphWrapper(recognizers[0], 13)
+        val text = " * aaa bb\n * ccc"
+        val caret = 9
+        val edits = TextEdits()
+        wrapper.rewrap(text, 0, text.length, 0, caret, edits)
+        val result = StringBuilder()
+        edits.writeTo(text, result)
+        assertEquals(" * aaa bb ccc", result.toString())
+        assertEquals(caret, edits.mapOffset(caret))
+        assertEquals(result.indexOf("ccc"), edits.mapOffset(text.indexOf("ccc")))
+        assertEquals(result.length, edits.mapOffset(text.length))
+    }
+
+    /**
+     * Rewrap a paragraph after an edit, from the line before the edit as live reflow does.
+     */
+    private fun rewrap(wrapper: ParagraphWrapper, text: String, editStart: Int, editEnd: Int): String {
+        val lines = LineIndex.of(text)
+        val lineStart = lines.getLineStartOffset(maxOf(lines.getLineNumber(editStart) - 1, 0))
+        val edits = TextEdits()
+        wrapper.rewrap(text, 0, text.length, lineStart, editEnd, edits)
+        val result = StringBuilder()
+        edits.writeTo(text, result)
+        return result.toString()
+    }
+
+    private fun isOneParagraph(text: String, recognizer: MarginRecognizer): Boolean {
+        if (text.isEmpty()) {
+            return false
+        }
+        val lines = LineIndex.of(text)
+        val finder = ParagraphFinder(text, lines, recognizer)
+        for (line in 0 until lines.lineCount) {
+            if (finder.isEmptyLine(line) || finder.isBlankLine(line)) {
+                return false
+            }
+        }
+        return finder.findEndLine(0) == lines.lineCount - 1
+    }
+}
@@ -0,0 +1,85 @@
+package com.github.cbfiddle.autoformattext2
+
+import com.github.cbfiddle.autoformattext2.engine.CommentOracle
+import com.github.cbfiddle.autoformattext2.engine.CommentPrefixes
+import com.github.cbfiddle.autoformattext2.engine.LineIndex
+import com.github.cbfiddle.autoformattext2.engine.MarginRecognizer
+import com.github.cbfiddle.autoformattext2.engine.TextReflower
+import junit.framework.TestCase
+
+/**
+ * Checks that [TextReflower] with a comment oracle reformats the comment lines of a paragraph, and only those.
+ */
+class TextReflowerTest : TestCase() {
+
+    fun testOneLineDocCommentFollowedByCode() {
+        val text = "class A {\n    /** Returns the answer. */\n    public int answer() { return 42; }\n}\n"
+        assertEquals(text, reformat(text, true))
+        assertEquals(text, reformat(text, false))
+    }
+
+    fun testBlockCommentFollowedByCode() {
+        val text = "    /* A block comment\n    that continues */\n    int field;\n    /* Another */ int other;\n"
+        assertEquals("    /* A block comment that continues */\n    int field;\n    /* Another */ int other;\n",
+                     reformat(text, true))
+    }
+
+    fun testCodeFollowedByComment() {
+        val text = "    int field;\n    /* A comment\n    that continues */\n"
+        assertEquals("    int field;\n    /* A comment that continues */\n", reformat(text, true))
+    }
+
+    fun testCommentInStringLiteral() {
+        val text = "    String s = \"/* not\n    a comment */\";\n"
+        assertEquals(text, reformat(text, true))
+    }
+
+    private fun reformat(text: String, withOracle: Boolean): String {
+        val reflower = TextReflower(MarginRecognizer(CommentPrefixes.forLanguage("JAVA"), 4), 80, true)
+        if (withOracle) {
+            reflower.setCommentOracle(JavaCommentOracle(text))
+        }
+        val out = StringBuilder()
+        reflower.computeEdits(text, LineIndex.of(text)).writeTo(text, out)
+        return out.toString()
+    }
+}
+
+/**
+ * Identifies the comments of Java source text, as the tokens of a highlighter would: block and line comments outside
+ * of string and character literals.
+ */
+internal class JavaCommentOracle(text: CharSequence) : CommentOracle {
+
+    private val comment = BooleanArray(text.length)
+
+    init {
+        var i = 0
+        while (i < text.length) {
+            val c = text[i]
+            val next = if (i + 1 < text.length) text[i + 1] else ' '
+            when {
+                c == '/' && next == '*' -> {
+                    val end = text.indexOf("*/", i + 2).let { if (it < 0) text.length else it + 2 }
+                    comment.fill(true, i, end)
+                    i = end
+                }
+                c == '/' && next == '/' -> {
+                    val end = text.indexOf('\n', i).let { if (it < 0) text.length else it }
+                    comment.fill(true, i, end)
+                    i = end
+                }
+                c == '"' || c == '\'' -> {
+                    i++
+                    while (i < text.length && text[i] != c) {
+                        i += if (text[i] == '\\') 2 else 1
+                    }
+                    i++
+                }
+                else -> i++
+            }
+        }
+    }
+
+    override fun isComment(offset: Int) = offset < comment.size && comment[offset]
+}
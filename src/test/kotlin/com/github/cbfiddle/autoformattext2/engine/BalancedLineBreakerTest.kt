@@ -0,0 +1,100 @@
+package com.github.cbfiddle.autoformattext2.engine
+
+import junit.framework.TestCase
+import java.util.Random
+
+/**
+ * Checks that the line breaks chosen by [BalancedLineBreaker] have the least cost found by the textbook O(n^2)
+ * dynamic program, for random word widths and line widths, including a first line of a different width and words
+ * that do not fit on any line.
+ */
+class BalancedLineBreakerTest : TestCase() {
+
+    fun testMatchesBruteForce() {
+        val random = Random(17)
+        val breaker = BalancedLineBreaker()
+        repeat(20000) { iteration ->
+            val widths = IntArray(1 + random.nextInt(60)) { 1 + random.nextInt(12) }
+            val otherLineWidth = 5 + random.nextInt(36)
+            val firstLineWidth = if (random.nextBoolean()) otherLineWidth else 5 + random.nextInt(36)
+            val spaceWidth = 1 + random.nextInt(2)
+
+            breaker.clear()
+            widths.forEach { breaker.addWord(it) }
+            breaker.breakLines(firstLineWidth, otherLineWidth, spaceWidth)
+
+            val context = "iteration $iteration: ${widths.toList()} $firstLineWidth $otherLineWidth $spaceWidth"
+            val expected = bruteForceCost(widths, firstLineWidth, otherLineWidth, spaceWidth)
+            assertEquals(context, expected, cost(breaker, widths, firstLineWidth, otherLineWidth, spaceWidth))
+        }
+    }
+
+    fun testSingleLine() {
+        val breaker = BalancedLineBreaker()
+        listOf(3, 4, 5).forEach { breaker.addWord(it) }
+        breaker.breakLines(14, 14, 1)
+        assertFalse(breaker.isBreakBefore(1))
+        assertFalse(breaker.isBreakBefore(2))
+    }
+
+    /**
+     * Return the cost of the breaks chosen by the breaker, failing if a line with several words is too long.
+     */
+    private fun cost(breaker: BalancedLineBreaker, widths: IntArray, first: Int, other: Int, space: Int): Long {
+        var total = 0L
+        var start = 0
+        for (end in 1..widths.size) {
+            if (end < widths.size && !breaker.isBreakBefore(end)) {
+                continue
+            }
+            val length = lineLength(widths, start, end, space)
+            val available = if (start == 0) first else other
+            assertTrue("line $start..$end is too long", length <= available || end == start + 1)
+            if (end < widths.size && length <= available) {
+                total += (available - length).toLong() * (available - length)
+            }
+            start = end
+        }
+        return total
+    }
+
+    private fun bruteForceCost(widths: IntArray, first: Int, other: Int, space: Int): Long {
+        val n = widths.size
+        val infeasible = Long.MAX_VALUE
+        // costs[j] is the least cost of the lines before a break at word j
+        val costs = LongArray(n + 1) { infeasible }
+        costs[0] = 0
+        for (j in 1 until n) {
+            for (i in 0 until j) {
+                if (costs[i] == infeasible) {
+                    continue
+                }
+                val length = lineLength(widths, i, j, space)
+                val available = if (i == 0) first else other
+                val cost = when {
+                    length <= available -> costs[i] + (available - length).toLong() * (available - length)
+                    j == i + 1 -> costs[i]
+                    else -> continue
+                }
+                costs[j] = minOf(costs[j], cost)
+            }
+        }
+        // The last line is free, as long as it fits or has a single word
+        var best = infeasible
+        for (i in 0 until n) {
+            val available = if (i == 0) first else other
+            if (costs[i] != infeasible && (i == n - 1 || lineLength(widths, i, n, space) <= available)) {
+                best = minOf(best, costs[i])
+            }
+        }
+        return best
+    }
+
+    private fun lineLength(widths: IntArray, start: Int, end: Int, space: Int): Int {
+        var length = (end - start - 1) * space
+        for (i in start until end) {
+            length += widths[i]
+        }
+        return length
+    }
+}
@@ -0,0 +1,28 @@
+package example;
+
+/**
+ * Reformats the paragraphs of a document. A paragraph is a run of lines that share a left margin, such as the
+ * leading star of a Javadoc comment, and it is
+ * rewrapped so that its lines are as long as possible without exceeding the line width.
+ *
+ * Short lines
+ * are joined, and long lines are broken at the spaces between words. Words are never broken, so a word that is longer than the line width is placed on a line of its own.
+ */
+public final class Example
+{
+    /**
+     * Return the width of the text in the range {@code start} (inclusive) to {@code end} (exclusive), measured in columns.
+     *
+     * @param text the text to measure, which is not modified
+     * @param start the offset of the first character
+     * @param end the offset after the last character
+     * @return the number of columns the text occupies when it is displayed in a monospaced font, counting wide characters twice
+     */
+    int width(CharSequence text, int start, int end)
+    {
+        return end - start;
+    }
+
+    /** A one line comment that is much too long for the line width and therefore has to be wrapped onto a second line. */
+    int field;
+}
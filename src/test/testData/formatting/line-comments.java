@@ -0,0 +1,16 @@
+class LineComments
+{
+    void run()
+    {
+        // A line comment that explains what the code below does, written as one very long line that goes well past the right margin.
+        int x = 1;
+
+        // A comment that was
+        // wrapped by hand
+        // with lines that are
+        // much too short.
+        int y = 2;
+
+        int z = 3; // A trailing comment is part of a line of code and is never reformatted, however long it happens to be.
+    }
+}
@@ -0,0 +1,11 @@
+class Tabs
+{
+	/**
+	 * A Javadoc comment indented with a tab, whose margin is measured with the tab size so that the lines are not made too long.
+	 */
+	void run()
+	{
+		// A line comment indented with two tabs, which take eight columns of the line width at a tab size of four columns.
+		int x = 1;
+	}
+}